@@ -0,0 +1,46 @@
+package com.ai;
+
+import com.ai.alg.ValueIteration;
+import com.ai.sim.Collision;
+import com.ai.sim.CollisionModel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+
+/**
+ * Benchmarks testing a converged value-iteration policy with the default number of runs.
+ */
+@State(Scope.Benchmark)
+public class PolicyTesterBenchmark {
+    @Param({"l_track.txt", "o_track.txt", "r_track.txt", "small_l_track.txt"})
+    public String track;
+
+    @Param({"stop", "restart"})
+    public String model;
+
+    private PolicyTester policyTester;
+    private Policy policy;
+
+    @Setup
+    public void setUp() throws IOException {
+        Racetrack racetrack = Racetrack.fromFile(track);
+        CollisionModel collisionModel = model.equals("stop") ? Collision.STOP : Collision.RESTART;
+
+        ValueIteration valueIteration = new ValueIteration(racetrack, collisionModel);
+        while (!valueIteration.finished()) {
+            valueIteration.next();
+        }
+
+        policyTester = new PolicyTester(racetrack, collisionModel);
+        policy = valueIteration.getPolicy();
+    }
+
+    @Benchmark
+    public Result testPolicy() {
+        return policyTester.testPolicy(policy);
+    }
+}
@@ -0,0 +1,63 @@
+package com.ai;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks how long a cold JVM takes to run a single iteration of Q-learning on the small L track, with
+ * and without the Spring context.
+ *
+ * Every measurement is a single shot in a fresh fork, so class loading and initialization are counted.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(10)
+public class StartupBenchmark {
+    private Path metrics;
+
+    @Setup
+    public void setUp() throws IOException {
+        metrics = Files.createTempFile("startup", ".csv");
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(metrics);
+    }
+
+    @Benchmark
+    public void lean() throws Exception {
+        Main.main(args());
+    }
+
+    @Benchmark
+    public void server() throws Exception {
+        Main.main(args("--server"));
+    }
+
+    private String[] args(String ... extra) {
+        String[] args = {"--racetrack", "small_l_track", "--model", "stop", "--learner", "qlearning",
+                "--max-iteration", "1", "--num-tests", "1", "--no-thread", "--metrics", metrics.toString()};
+        String[] all = new String[args.length + extra.length];
+        System.arraycopy(args, 0, all, 0, args.length);
+        System.arraycopy(extra, 0, all, args.length, extra.length);
+        return all;
+    }
+}
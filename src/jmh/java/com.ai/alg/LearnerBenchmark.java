@@ -0,0 +1,79 @@
+package com.ai.alg;
+
+import com.ai.Racetrack;
+import com.ai.sim.Collision;
+import com.ai.sim.CollisionModel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks a single step of each learner: one sweep of value iteration, or one episode of SARSA or QLearning.
+ *
+ * Value iteration converges after a few dozen sweeps, so every measurement iteration starts a fresh learner
+ * and times its first sweeps one at a time, giving the latency of a sweep rather than of a converged no-op.
+ */
+@State(Scope.Benchmark)
+public class LearnerBenchmark {
+    private static final int SWEEPS = 10;
+
+    @Param({"l_track.txt", "o_track.txt", "r_track.txt", "small_l_track.txt"})
+    public String track;
+
+    @Param({"stop", "restart"})
+    public String model;
+
+    private Racetrack racetrack;
+    private CollisionModel collisionModel;
+
+    private ValueIteration valueIteration;
+    private SARSA sarsa;
+    private QLearning qLearning;
+
+    @Setup(Level.Trial)
+    public void setUpTrial() throws IOException {
+        racetrack = Racetrack.fromFile(track);
+        collisionModel = model.equals("stop") ? Collision.STOP : Collision.RESTART;
+
+        sarsa = new SARSA(racetrack, collisionModel);
+        qLearning = new QLearning(racetrack, collisionModel);
+    }
+
+    @Setup(Level.Iteration)
+    public void setUpIteration() {
+        valueIteration = new ValueIteration(racetrack, collisionModel);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 5, batchSize = SWEEPS)
+    @Measurement(iterations = 10, batchSize = SWEEPS)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public ValueIteration valueIterationSweep() {
+        valueIteration.next();
+        return valueIteration;
+    }
+
+    @Benchmark
+    public SARSA sarsaEpisode() {
+        sarsa.next();
+        return sarsa;
+    }
+
+    @Benchmark
+    public QLearning qLearningEpisode() {
+        qLearning.next();
+        return qLearning;
+    }
+}
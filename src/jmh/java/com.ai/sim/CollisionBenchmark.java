@@ -0,0 +1,50 @@
+package com.ai.sim;
+
+import com.ai.Racetrack;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+
+/**
+ * Benchmarks collision pathing, tracing every move from every safe position of a racetrack.
+ *
+ * The FLOATING_POINT engine is `Collision.followMove`. Neither engine goes through the collision cache,
+ * so every operation traces all of the moves from scratch.
+ */
+@State(Scope.Benchmark)
+public class CollisionBenchmark {
+    @Param({"l_track.txt", "o_track.txt", "r_track.txt", "small_l_track.txt"})
+    public String track;
+
+    @Param({"FLOATING_POINT", "INTEGER"})
+    public CollisionEngine engine;
+
+    private Racetrack racetrack;
+
+    @Setup
+    public void setUp() throws IOException {
+        racetrack = Racetrack.fromFile(track);
+    }
+
+    @Benchmark
+    public void traceAllMoves(Blackhole blackhole) {
+        for (int x = 0; x < racetrack.getWidth(); x++) {
+            for (int y = 0; y < racetrack.getHeight(); y++) {
+                if (!racetrack.isSafe(x, y)) {
+                    continue;
+                }
+
+                for (int vx = -5; vx <= 5; vx++) {
+                    for (int vy = -5; vy <= 5; vy++) {
+                        blackhole.consume(engine.trace(racetrack, x, y, vx, vy));
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.ai.sim;
+
+import com.ai.Racetrack;
+import com.ai.model.Action;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+
+/**
+ * Benchmarks `MDP.getNextStates` and `MDP.sample`, asking for the outcomes of every action in every state
+ * that can be reached from the starting line. Sampling alternates between applying the action and not.
+ *
+ * The "uncached" MDP is a `RacetrackMDP` on a freshly loaded racetrack for every invocation, so its
+ * collision cache starts out empty and each pass pays for tracing the moves. The "cached" MDP keeps its
+ * racetrack, so after warmup it only measures collision cache hits. The "compiled" MDP is a
+ * `CompiledRacetrackMDP`.
+ */
+@State(Scope.Benchmark)
+public class MDPBenchmark {
+    @Param({"l_track.txt", "o_track.txt", "r_track.txt", "small_l_track.txt"})
+    public String track;
+
+    @Param({"stop", "restart"})
+    public String model;
+
+    @Param({"uncached", "cached", "compiled"})
+    public String mdpType;
+
+    private CollisionModel collisionModel;
+    private MDP mdp;
+    private com.ai.model.State[] states;
+
+    @Setup
+    public void setUp() throws IOException {
+        Racetrack racetrack = Racetrack.fromFile(track);
+        collisionModel = model.equals("stop") ? Collision.STOP : Collision.RESTART;
+
+        CompiledRacetrackMDP compiledMDP = new CompiledRacetrackMDP(racetrack, collisionModel);
+        TransitionTable transitions = compiledMDP.getTransitionTable();
+        states = new com.ai.model.State[transitions.size()];
+        for (int id = 0; id < states.length; id++) {
+            states[id] = transitions.state(id);
+        }
+
+        mdp = mdpType.equals("compiled") ? compiledMDP : new RacetrackMDP(racetrack, collisionModel);
+    }
+
+    @Setup(Level.Invocation)
+    public void clearCache() throws IOException {
+        //collision caches are kept per racetrack, so a new copy of the racetrack starts with an empty one
+        if (mdpType.equals("uncached")) {
+            mdp = new RacetrackMDP(Racetrack.fromFile(track), collisionModel);
+        }
+    }
+
+    @Benchmark
+    public void getNextStates(Blackhole blackhole) {
+        for (com.ai.model.State state : states) {
+            for (int action = 0; action < Action.COUNT; action++) {
+                blackhole.consume(mdp.getNextStates(state, Action.fromIndex(action)));
+            }
+        }
+    }
+
+    @Benchmark
+    public void sample(Blackhole blackhole) {
+        for (com.ai.model.State state : states) {
+            for (int action = 0; action < Action.COUNT; action++) {
+                blackhole.consume(mdp.sample(state, Action.fromIndex(action), (action & 1) == 0 ? 0.5 : 0.9));
+            }
+        }
+    }
+}
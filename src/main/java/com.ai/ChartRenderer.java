@@ -0,0 +1,132 @@
+package com.ai;
+
+import com.ai.io.LearningCurvePoint;
+import com.ai.io.LearningCurveSink;
+import org.apache.log4j.Logger;
+import org.jfree.chart.ChartFactory;
+import org.jfree.chart.ChartUtilities;
+import org.jfree.chart.JFreeChart;
+import org.jfree.chart.axis.CategoryAxis;
+import org.jfree.chart.axis.CategoryLabelPositions;
+import org.jfree.chart.plot.CategoryPlot;
+import org.jfree.chart.plot.PlotOrientation;
+import org.jfree.data.category.DefaultCategoryDataset;
+
+import java.awt.*;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Renders the learning curves in a metrics file (see `LearningCurveSink`) as PNG charts, one pair per curve:
+ * the whole curve, and the curve from the first iteration at which the policy no longer hits the policy
+ * tester's iteration limit.
+ *
+ * Runs offline over a finished (or running) metrics file:
+ *  $ java -cp racetrack_ai.jar com.ai.ChartRenderer results/learning-curve.csv [output directory]
+ */
+public class ChartRenderer {
+    private static final Logger logger = Logger.getLogger(ChartRenderer.class);
+
+    public static void main(String ... args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: ChartRenderer <metrics file> [output directory]");
+            System.exit(1);
+        }
+        render(Paths.get(args[0]), new File(args.length > 1 ? args[1] : "results"));
+    }
+
+    /**
+     * Renders every learning curve in a metrics file
+     *
+     * @param metrics the metrics file to read
+     * @param outputDir the directory to save the charts in
+     * @throws IOException if the metrics cannot be read or a chart cannot be saved
+     */
+    public static void render(Path metrics, File outputDir) throws IOException {
+        outputDir.mkdirs();
+        Map<String, List<LearningCurvePoint>> curves = new LinkedHashMap<>();
+        for (LearningCurvePoint point : LearningCurveSink.read(metrics)) {
+            curves.computeIfAbsent(point.getCurve(), curve -> new ArrayList<>()).add(point);
+        }
+
+        for (Map.Entry<String, List<LearningCurvePoint>> curve : curves.entrySet()) {
+            logger.debug("Rendering " + curve.getKey() + "...");
+            makeChart(curve.getKey(), curve.getValue(), outputDir);
+        }
+    }
+
+    /**
+     * Creates a graph from the points of a learning curve
+     *
+     * @param title of the graph
+     * @param points the points of the curve, in the order they were recorded
+     * @param outputDir the directory to save the graph in
+     * @throws IOException cannot save graph
+     */
+    private static void makeChart(String title, List<LearningCurvePoint> points, File outputDir) throws IOException {
+        //the iteration at which the policy first stopped hitting the tester's iteration limit
+        int iterationLimit = Integer.MAX_VALUE;
+        for (LearningCurvePoint point : points) {
+            if (!point.isAtIterationLimit()) {
+                iterationLimit = point.getIteration();
+                break;
+            }
+        }
+
+        DefaultCategoryDataset line_chart_dataset = new DefaultCategoryDataset();
+        DefaultCategoryDataset line_chart_dataset2 = new DefaultCategoryDataset();
+        for (LearningCurvePoint point : points) {
+            line_chart_dataset.addValue(point.getMean()-point.getConfidence(), " confidence lower", (Integer) point.getIteration());
+            line_chart_dataset.addValue(point.getMean()+point.getConfidence(), " confidence upper", (Integer) point.getIteration());
+            if (point.getIteration() >= iterationLimit) {
+                line_chart_dataset2.addValue(point.getMean()-point.getConfidence(), " confidence lower", (Integer) point.getIteration());
+                line_chart_dataset2.addValue(point.getMean()+point.getConfidence(), " confidence upper", (Integer) point.getIteration());
+            }
+        }
+
+        JFreeChart fullChart = ChartFactory.createLineChart(
+                title, "Iterations",
+                "Results",
+                line_chart_dataset, PlotOrientation.VERTICAL,
+                true,true,false);
+        CategoryPlot categoryPlot = fullChart.getCategoryPlot();
+        categoryPlot.setBackgroundPaint(Color.white);
+        categoryPlot.setDomainGridlinePaint(Color.lightGray);
+        categoryPlot.setRangeGridlinePaint(Color.lightGray);
+        categoryPlot.setDomainGridlinesVisible(true);
+        categoryPlot.getRenderer().setSeriesPaint(0, Color.black);
+        categoryPlot.getRenderer().setSeriesPaint(1, Color.black);
+        CategoryAxis domainAxis = categoryPlot.getDomainAxis();
+        domainAxis.setCategoryLabelPositions(CategoryLabelPositions.UP_45);
+
+        JFreeChart afterIterationCount = ChartFactory.createLineChart(
+                title+" after Iteration limit", "Iterations",
+                "Results",
+                line_chart_dataset2, PlotOrientation.VERTICAL,
+                true,true,false);
+        CategoryPlot categoryPlot2 = afterIterationCount.getCategoryPlot();
+        categoryPlot2.setBackgroundPaint(Color.white);
+        categoryPlot2.setDomainGridlinePaint(Color.lightGray);
+        categoryPlot2.setRangeGridlinePaint(Color.lightGray);
+        categoryPlot2.setDomainGridlinesVisible(true);
+        categoryPlot2.getRenderer().setSeriesPaint(0, Color.black);
+        categoryPlot2.getRenderer().setSeriesPaint(1, Color.black);
+        CategoryAxis domainAxis2 = categoryPlot2.getDomainAxis();
+        domainAxis2.setCategoryLabelPositions(CategoryLabelPositions.UP_45);
+
+
+
+        int width = 800; /* Width of the image */
+        int height = 600; /* Height of the image */
+        File fullLineChart = new File(outputDir, title+".png" );
+        File afterIterationChart = new File(outputDir, title+" after iteration limit.png" );
+        ChartUtilities.saveChartAsPNG(fullLineChart ,fullChart, width ,height);
+        ChartUtilities.saveChartAsPNG(afterIterationChart ,afterIterationCount, width ,height);
+    }
+}
@@ -1,28 +1,34 @@
 package com.ai;
 
+import com.ai.alg.GaussSeidelValueIteration;
+import com.ai.alg.PrioritizedSweeping;
 import com.ai.alg.QLearning;
 import com.ai.alg.RacetrackLearner;
 import com.ai.alg.SARSA;
+import com.ai.alg.UtilityInitializer;
 import com.ai.alg.ValueIteration;
+import com.ai.io.Checkpointer;
+import com.ai.io.LearnerSnapshot;
+import com.ai.io.LearningCurvePoint;
+import com.ai.io.LearningCurveSink;
+import com.ai.io.TransitionCache;
+import com.ai.metrics.Instrumentation;
+import com.ai.metrics.Timer;
 import com.ai.sim.Collision;
+import com.ai.sim.CollisionEngine;
 import com.ai.sim.CollisionModel;
+import com.ai.sim.CompiledRacetrackMDP;
 import joptsimple.OptionParser;
 import joptsimple.OptionSet;
 import org.apache.log4j.Level;
 import org.apache.log4j.Logger;
-import org.jfree.chart.ChartFactory;
-import org.jfree.chart.ChartUtilities;
-import org.jfree.chart.JFreeChart;
-import org.jfree.chart.axis.CategoryAxis;
-import org.jfree.chart.axis.CategoryLabelPositions;
-import org.jfree.chart.plot.CategoryPlot;
-import org.jfree.chart.plot.PlotOrientation;
-import org.jfree.data.category.DefaultCategoryDataset;
 import org.springframework.boot.SpringApplication;
 
-import java.awt.*;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -33,14 +39,29 @@ import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.stream.Collectors;
+import java.util.concurrent.TimeUnit;
 
 public class Main {
     private static final Logger logger = Logger.getLogger(Main.class);
 
+    /* The racetracks that can be run, named after their files */
+    private static final String[] RACETRACKS = {"l_track", "r_track", "o_track", "small_l_track"};
+
+    /**
+     * Runs the learners and tests given by the arguments.
+     *
+     * The Spring context is only started for `--server`, since nothing else uses it and it takes most of
+     * the time to start up. Without it, logging is configured by logback.xml rather than application.yaml.
+     *
+     * @param args program arguments
+     * @throws Exception if the run fails
+     */
     public static void main(String ... args) throws Exception {
-        SpringApplication.run(Main.class, args);
         OptionSet options = getOptions(args);
+        if (options.has("server")) {
+            logger.debug("Starting the Spring context...");
+            SpringApplication.run(Main.class, args);
+        }
         run(options);
     }
 
@@ -65,9 +86,10 @@ public class Main {
      * @param options to check for num tests of
      * @param racetracks racetracks to setup policy testers for
      * @param collisionModels collision model to test with
+     * @param random the random source to split the testers' sources from
      * @return the list of needed policy testers
      */
-    private static Map<Racetrack, Map<CollisionModel, PolicyTester>> getPolicyTesters(OptionSet options, List<Racetrack> racetracks, List<CollisionModel> collisionModels) {
+    private static Map<Racetrack, Map<CollisionModel, PolicyTester>> getPolicyTesters(OptionSet options, List<Racetrack> racetracks, List<CollisionModel> collisionModels, RandomSource random) {
         Map<Racetrack, Map<CollisionModel, PolicyTester>> policyTesters = new HashMap<>();
 
         for(Racetrack raceTrack : racetracks) {
@@ -78,7 +100,7 @@ public class Main {
             for (CollisionModel collisionModel: collisionModels) {
                 logger.debug("Adding policy tester for "+ raceTrack + " and "+ collisionModel);
                 Map<CollisionModel, PolicyTester> policyTesterList = policyTesters.get(raceTrack);
-                policyTesterList.put(collisionModel, new PolicyTester(raceTrack, collisionModel, (Integer) options.valueOf("num-tests")));
+                policyTesterList.put(collisionModel, new PolicyTester(raceTrack, collisionModel, (Integer) options.valueOf("num-tests"), random.split()));
             }
         }
 
@@ -92,38 +114,94 @@ public class Main {
      * @return the needed collision models
      */
     private static List<CollisionModel> getCollisionModels(OptionSet options) {
+        CollisionEngine engine = getCollisionEngine(options);
         List<CollisionModel> collisionModels = new ArrayList<>();
         if (options.hasArgument("model")) {
             switch (options.valueOf("model").toString()) {
                 case "stop":
                     logger.debug("Setting stop collision model for policy testers...");
-                    collisionModels.add(Collision.STOP);
+                    collisionModels.add(Collision.stop(engine));
                     break;
                 case "restart":
                     logger.debug("Setting restart collision model for policy testers");
-                    collisionModels.add(Collision.RESTART);
+                    collisionModels.add(Collision.restart(engine));
                 default:
                     logger.error("Unrecognized value for model " + options.valueOf("model").toString() + "expected <restart> or <stop>");
                     logger.error("Throwing runtime exception...");
                     new RuntimeException("Unrecognized argument");
             }
         } else {
-            collisionModels = Arrays.asList(Collision.STOP, Collision.RESTART);
+            collisionModels = Arrays.asList(Collision.stop(engine), Collision.restart(engine));
         }
 
         return collisionModels;
     }
 
+    /**
+     * Gets how the collision models should trace moves from the options
+     *
+     * @param options options to check for a collision engine in
+     * @return the collision engine to use
+     */
+    private static CollisionEngine getCollisionEngine(OptionSet options) {
+        switch (options.valueOf("collision-engine").toString()) {
+            case "floating-point":
+                return CollisionEngine.FLOATING_POINT;
+            case "integer":
+                logger.debug("Tracing collisions with the integer collision engine...");
+                return CollisionEngine.INTEGER;
+            default:
+                logger.error("Unrecognized value for collision-engine " + options.valueOf("collision-engine") + " expected <floating-point> or <integer>");
+                throw new IllegalArgumentException("Unrecognized collision engine");
+        }
+    }
+
+    /**
+     * Gets the random source every learner and policy tester splits its own source from.
+     * Seeding it makes the whole run reproducible.
+     *
+     * @param options options to check for a seed in
+     * @return the random source to split from
+     */
+    private static RandomSource getRandomSource(OptionSet options) {
+        if (options.has("seed")) {
+            logger.debug("Seeding the random source with " + options.valueOf("seed") + "...");
+            return RandomSource.seeded((Long) options.valueOf("seed"));
+        }
+        return RandomSource.threadLocal();
+    }
+
+    /**
+     * Gets how the MDP-based learners should choose their starting utilities from the options
+     *
+     * @param options options to check for an initializer in
+     * @return the utility initializer to use
+     */
+    private static UtilityInitializer getUtilityInitializer(OptionSet options) {
+        switch (options.valueOf("initializer").toString()) {
+            case "random":
+                return UtilityInitializer.RANDOM;
+            case "distance":
+                logger.debug("Seeding utilities with the distance to the finish line...");
+                return UtilityInitializer.DISTANCE_TO_FINISH;
+            default:
+                logger.error("Unrecognized value for initializer " + options.valueOf("initializer") + " expected <random> or <distance>");
+                throw new IllegalArgumentException("Unrecognized initializer");
+        }
+    }
+
     /**
      * Gets the needed racetrack learners for a racetrack
      *
      * @param options options to check for learners in
      * @param racetracks racetracks to build learners for
+     * @param random the random source to split the learners' sources from
      *
      * @return the needed racetrack learners for testing
      */
-    private static Map<Racetrack, Map<CollisionModel, List<RacetrackLearner>>> getRaceTrackLearners(OptionSet options, List<Racetrack> racetracks, List<CollisionModel> collisonModels) {
+    private static Map<Racetrack, Map<CollisionModel, List<RacetrackLearner>>> getRaceTrackLearners(OptionSet options, List<Racetrack> racetracks, List<CollisionModel> collisonModels, RandomSource random) {
         Map<Racetrack, Map<CollisionModel, List<RacetrackLearner>>> learners = new HashMap<>();
+        UtilityInitializer initializer = getUtilityInitializer(options);
         if (options.hasArgument("learner")) {
             String learnerName = options.valueOf("learner").toString();
             switch (learnerName) {
@@ -133,7 +211,7 @@ public class Main {
                         Map<CollisionModel, List<RacetrackLearner>> collisionMap = new HashMap<>();
                         learners.put(racetrack, collisionMap);
                         for (CollisionModel collisionModel: collisonModels) {
-                            collisionMap.put(collisionModel, Arrays.asList(new SARSA(racetrack, collisionModel)));
+                            collisionMap.put(collisionModel, Arrays.asList(new SARSA(racetrack, collisionModel, random.split())));
                         }
                     }
                     break;
@@ -144,7 +222,7 @@ public class Main {
                         Map<CollisionModel, List<RacetrackLearner>> collisionMap = new HashMap<>();
                         learners.put(racetrack, collisionMap);
                         for (CollisionModel collisionModel: collisonModels) {
-                            collisionMap.put(collisionModel, Arrays.asList(new QLearning(racetrack, collisionModel)));
+                            collisionMap.put(collisionModel, Arrays.asList(new QLearning(racetrack, collisionModel, random.split())));
                         }
                     }
                     break;
@@ -155,12 +233,34 @@ public class Main {
                         Map<CollisionModel, List<RacetrackLearner>> collisionMap = new HashMap<>();
                         learners.put(racetrack, collisionMap);
                         for (CollisionModel collisionModel: collisonModels) {
-                            collisionMap.put(collisionModel, Arrays.asList(new ValueIteration(racetrack, collisionModel)));
+                            collisionMap.put(collisionModel, Arrays.asList(new ValueIteration(racetrack, collisionModel, initializer, options.has("parallel-sweep"), random.split())));
+                        }
+                    }
+                    break;
+
+                case "gauss-seidel":
+                    logger.debug("Adding Gauss-Seidel value iteration to tester...");
+                    for (Racetrack racetrack : racetracks) {
+                        Map<CollisionModel, List<RacetrackLearner>> collisionMap = new HashMap<>();
+                        learners.put(racetrack, collisionMap);
+                        for (CollisionModel collisionModel: collisonModels) {
+                            collisionMap.put(collisionModel, Arrays.asList(new GaussSeidelValueIteration(racetrack, collisionModel, initializer, random.split())));
+                        }
+                    }
+                    break;
+
+                case "prioritized-sweeping":
+                    logger.debug("Adding prioritized sweeping to tester...");
+                    for (Racetrack racetrack : racetracks) {
+                        Map<CollisionModel, List<RacetrackLearner>> collisionMap = new HashMap<>();
+                        learners.put(racetrack, collisionMap);
+                        for (CollisionModel collisionModel: collisonModels) {
+                            collisionMap.put(collisionModel, Arrays.asList(new PrioritizedSweeping(racetrack, collisionModel, initializer, random.split())));
                         }
                     }
                     break;
                 default:
-                    logger.error("Value not recognized: " + learnerName + ". Expected <sarsa>, <qlearning> or <value-iteration>...");
+                    logger.error("Value not recognized: " + learnerName + ". Expected <sarsa>, <qlearning>, <value-iteration>, <gauss-seidel> or <prioritized-sweeping>...");
                     logger.error("Throwing runtime exception...");
                     new RuntimeException("Learner name not recognized");
             }
@@ -169,7 +269,7 @@ public class Main {
                 Map<CollisionModel, List<RacetrackLearner>> collisionMap = new HashMap<>();
                 learners.put(racetrack, collisionMap);
                 for (CollisionModel collisionModel: collisonModels) {
-                    collisionMap.put(collisionModel, Arrays.asList(new SARSA(racetrack, collisionModel), new QLearning(racetrack, collisionModel), new ValueIteration(racetrack, collisionModel)));
+                    collisionMap.put(collisionModel, Arrays.asList(new SARSA(racetrack, collisionModel, random.split()), new QLearning(racetrack, collisionModel, random.split()), new ValueIteration(racetrack, collisionModel, initializer, options.has("parallel-sweep"), random.split())));
                 }
             }
         }
@@ -185,16 +285,217 @@ public class Main {
      */
     private static void run(OptionSet options) throws Exception {
         handleSampleRun(options);
+        if (options.has("instrument")) {
+            logger.debug("Enabling instrumentation...");
+            Instrumentation.enable();
+            Instrumentation.startReporting((Integer) options.valueOf("instrument-report"), TimeUnit.SECONDS);
+        }
+
+        try {
+            runLearners(options);
+        } finally {
+            if (Instrumentation.isEnabled()) {
+                Instrumentation.stopReporting();
+                logger.warn(Instrumentation.summary());
+            }
+        }
+    }
+
+    /**
+     * Runs the learners and tests determined by the options
+     *
+     * @param options the options that configure the tests
+     * @throws IOException caused by racetrack file not existing
+     */
+    private static void runLearners(OptionSet options) throws Exception {
+        if (options.has("transition-cache")) {
+            logger.debug("Loading compiled transitions from " + options.valueOf("transition-cache") + "...");
+            CompiledRacetrackMDP.useCache(new TransitionCache(Paths.get(options.valueOf("transition-cache").toString())));
+        }
+
         List<Racetrack> racetracks = getRaceTracks(options);
         List<CollisionModel> collisionModels = getCollisionModels(options);
-        Map<Racetrack, Map<CollisionModel, List<RacetrackLearner>>> learners = getRaceTrackLearners(options, racetracks, collisionModels);
-        Map<Racetrack, Map<CollisionModel, PolicyTester>> policyTesters = getPolicyTesters(options, racetracks, collisionModels);
+        RandomSource random = getRandomSource(options);
+        if (options.has("load-policy")) {
+            testSnapshot(Paths.get(options.valueOf("load-policy").toString()), racetracks, collisionModels, (Integer) options.valueOf("num-tests"), random);
+            return;
+        }
 
+        Map<Racetrack, Map<CollisionModel, List<RacetrackLearner>>> learners = getRaceTrackLearners(options, racetracks, collisionModels, random);
+        Map<Racetrack, Map<CollisionModel, PolicyTester>> policyTesters = getPolicyTesters(options, racetracks, collisionModels, random);
 
-        if (options.has("no-thread")) {
-            nonThreadedRun(learners, policyTesters, (Integer) options.valueOf("max-iteration"));
-        } else {
-            multiThreadedRun(learners, policyTesters, (Integer) options.valueOf("max-iteration"));
+
+        Path snapshotDir = null;
+        if (options.has("snapshot-dir")) {
+            snapshotDir = Files.createDirectories(Paths.get(options.valueOf("snapshot-dir").toString()));
+        }
+
+        Path metricsPath = Paths.get(options.valueOf("metrics").toString());
+        if (metricsPath.getParent() != null) {
+            Files.createDirectories(metricsPath.getParent());
+        }
+
+        try (Checkpointer checkpointer = getCheckpointer(options);
+             LearningCurveSink metrics = new LearningCurveSink(metricsPath)) {
+            if (options.has("no-thread")) {
+                nonThreadedRun(learners, policyTesters, (Integer) options.valueOf("max-iteration"), snapshotDir, checkpointer, options.has("resume"), metrics);
+            } else {
+                multiThreadedRun(learners, policyTesters, (Integer) options.valueOf("max-iteration"), snapshotDir, checkpointer, options.has("resume"), metrics);
+            }
+        }
+
+        if (options.has("charts")) {
+            logger.info("Making Graphs!");
+            ChartRenderer.render(metricsPath, new File("results"));
+        }
+    }
+
+    /**
+     * Gives the timer a learner's iterations are timed with, which is named after the learner
+     *
+     * @param learner the learner to time
+     * @param tester the tester the learner is tested with
+     * @return the learner's timer
+     */
+    private static Timer stepTimer(RacetrackLearner learner, PolicyTester tester) {
+        return Instrumentation.timer("learner.next." + snapshotName(learner, tester));
+    }
+
+    /**
+     * Performs the learner's next iteration, timing it with the learner's timer
+     *
+     * @param learner the learner to step
+     * @param timer the learner's timer, from `stepTimer`
+     */
+    private static void step(RacetrackLearner learner, Timer timer) {
+        long start = timer.start();
+        learner.next();
+        timer.stop(start);
+    }
+
+    /**
+     * Streams a policy test result to the learning curve metrics
+     *
+     * @param metrics the sink to stream to
+     * @param learner the learner whose policy was tested
+     * @param tester the tester the policy was tested with
+     * @param result the result of the test
+     */
+    private static void recordResult(LearningCurveSink metrics, RacetrackLearner learner, PolicyTester tester, Result result) {
+        LearningCurvePoint point = metrics.record(learner.toString(), tester.getRacetrack().toString(), tester.collisionModel().toString(),
+                learner.getIterationCount(), result.getMean(), result.getConfidence(), result.getVariance(),
+                tester.atIterationLimit((int)result.getMean()*2));
+        logger.debug("Recorded " + point);
+    }
+
+    /**
+     * Gets the checkpointer that periodically saves the learners from the options
+     *
+     * @param options options to check for a checkpoint directory in
+     * @return the checkpointer, which never checkpoints if no checkpoint directory is given
+     * @throws IOException if the checkpoint directory cannot be made
+     */
+    private static Checkpointer getCheckpointer(OptionSet options) throws IOException {
+        if (!options.has("checkpoint-dir")) {
+            if (options.has("resume")) {
+                throw new IllegalArgumentException("--resume needs a --checkpoint-dir to resume from");
+            }
+            return new Checkpointer(null, 0, TimeUnit.SECONDS);
+        }
+
+        Path checkpointDir = Files.createDirectories(Paths.get(options.valueOf("checkpoint-dir").toString()));
+        logger.debug("Checkpointing learners to " + checkpointDir + " every " + options.valueOf("checkpoint-interval") + " seconds...");
+        return new Checkpointer(checkpointDir, (Integer) options.valueOf("checkpoint-interval"), TimeUnit.SECONDS);
+    }
+
+    /**
+     * Gives the name a learner's snapshots and checkpoints are saved under
+     *
+     * @param learner the learner to name
+     * @param tester the tester the learner is tested with
+     * @return the learner's name
+     */
+    private static String snapshotName(RacetrackLearner learner, PolicyTester tester) {
+        return learner + " on " + tester.getRacetrack() + " using " + tester.collisionModel();
+    }
+
+    /**
+     * Resumes the learner from its checkpoint if the run is resuming
+     *
+     * @param learner the learner to resume
+     * @param tester the tester the learner is tested with
+     * @param checkpointer the checkpointer to resume from
+     * @param resume whether the run is resuming
+     * @param metrics the sink the learner's learning curve is streamed to
+     */
+    private static void resumeLearner(RacetrackLearner learner, PolicyTester tester, Checkpointer checkpointer, boolean resume, LearningCurveSink metrics) {
+        if (!resume) {
+            return;
+        }
+
+        try {
+            if (checkpointer.resume(learner, snapshotName(learner, tester))) {
+                metrics.resume(learner.toString(), tester.getRacetrack().toString(), tester.collisionModel().toString(), learner.getIterationCount());
+            } else {
+                logger.info("No checkpoint for " + learner + ", starting from scratch...");
+            }
+        } catch (IOException ex) {
+            logger.error("Could not resume " + learner + ", starting from scratch...", ex);
+        }
+    }
+
+    /**
+     * Tests the policy of a saved learner snapshot, without running any learners
+     *
+     * @param path the snapshot file to load
+     * @param racetracks the racetracks to find the snapshot's racetrack in
+     * @param collisionModels the collision models to find the snapshot's collision model in
+     * @param numTests the number of races to test the policy with
+     * @param random the random source to split the tester's source from
+     * @throws IOException if the snapshot cannot be read
+     */
+    private static void testSnapshot(Path path, List<Racetrack> racetracks, List<CollisionModel> collisionModels, int numTests, RandomSource random) throws IOException {
+        LearnerSnapshot snapshot = LearnerSnapshot.map(path);
+        logger.debug("Loaded snapshot of " + snapshot + "...");
+
+        Racetrack racetrack = racetracks.stream()
+                .filter(track -> track.getContentHash() == snapshot.getTrackHash())
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("None of the racetracks match the snapshot " + path));
+        CollisionModel collisionModel = collisionModels.stream()
+                .filter(model -> model.toString().equals(snapshot.getCollisionModel()))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("No " + snapshot.getCollisionModel() + " to test the snapshot " + path + " with"));
+
+        PolicyTester policyTester = new PolicyTester(racetrack, collisionModel, numTests, random.split());
+        Result result = policyTester.testPolicy(snapshot.getPolicy(racetrack));
+        logger.info(
+                "Result: " + result.getMean() +
+                        " with confidence of: " + result.getConfidence() +
+                        " variance: " + result.getVariance() +
+                        " for snapshot: " + snapshot +
+                        " on: " + racetrack
+        );
+    }
+
+    /**
+     * Saves a snapshot of what the learner has learned to the snapshot directory
+     *
+     * @param learner the learner to snapshot
+     * @param tester the tester the learner was tested with, which names the snapshot
+     * @param snapshotDir the directory to save to, or null to not save
+     */
+    private static void saveSnapshot(RacetrackLearner learner, PolicyTester tester, Path snapshotDir) {
+        if (snapshotDir == null) {
+            return;
+        }
+
+        Path path = snapshotDir.resolve(snapshotName(learner, tester) + ".snapshot");
+        try {
+            learner.snapshot().write(path);
+            logger.debug("Saved snapshot of " + learner + " to " + path);
+        } catch (IOException ex) {
+            logger.error("Could not save snapshot", ex);
         }
     }
 
@@ -209,41 +510,63 @@ public class Main {
     private static List<Racetrack> getRaceTracks(OptionSet options) throws IOException {
         List<Racetrack> racetracks = new ArrayList<>();
 
-        Map<String, Racetrack> racetrackRegistry = new HashMap<>();
-        racetrackRegistry.put("l_track", Racetrack.fromFile("l_track.txt").withName("l_track"));
-        racetrackRegistry.put("r_track", Racetrack.fromFile("r_track.txt").withName("r_track"));
-        racetrackRegistry.put("o_track", Racetrack.fromFile("o_track.txt").withName("o_track"));
-        racetrackRegistry.put("small_l_track", Racetrack.fromFile("small_l_track.txt").withName("small_l_track"));
-
         if (options.hasArgument("racetrack")) {
             if (options.valueOf("racetrack").toString().equals("all")) {
                 logger.debug("Adding every racetrack in the registry...");
-                racetracks.addAll(racetrackRegistry.values());
+                for (String name : RACETRACKS) {
+                    racetracks.add(loadRacetrack(name));
+                }
             } else {
-                logger.debug("Adding the specified racetrack: " + racetrackRegistry.get(options.valueOf("racetrack").toString())+" ...");
-                racetracks.add(racetrackRegistry.get(options.valueOf("racetrack").toString()));
+                String name = options.valueOf("racetrack").toString();
+                if (!Arrays.asList(RACETRACKS).contains(name)) {
+                    logger.error("Unrecognized value for racetrack " + name + " expected one of " + Arrays.toString(RACETRACKS) + " or <all>");
+                    throw new IllegalArgumentException("Unrecognized racetrack");
+                }
+                logger.debug("Adding the specified racetrack: " + name + " ...");
+                racetracks.add(loadRacetrack(name));
             }
         } else {
-            racetracks.add(racetrackRegistry.get("small_l_track"));
+            racetracks.add(loadRacetrack("small_l_track"));
             logger.debug("Adding only the small_l_track...");
         }
 
         return racetracks;
     }
 
+    /**
+     * Loads a racetrack from the registry, so only the racetracks being run are read at startup
+     *
+     * @param name the name of the racetrack
+     * @return the racetrack
+     * @throws IOException caused by racetrack file not existing
+     */
+    private static Racetrack loadRacetrack(String name) throws IOException {
+        return Racetrack.fromFile(name + ".txt").withName(name);
+    }
+
     /**
      * Runs a non threaded run
      *
      * @param learners to test
      * @param policyTesters to test against
      * @param maxIteration to blow up after
+     * @param snapshotDir where to save the learners' snapshots when they stop, or null to not save them
+     * @param checkpointer to checkpoint the learners with
+     * @param resume whether to resume the learners from their checkpoints
+     * @param metrics to stream the learners' results to
      */
-    private static void nonThreadedRun(Map<Racetrack, Map<CollisionModel, List<RacetrackLearner>>> learners, Map<Racetrack, Map<CollisionModel, PolicyTester>> policyTesters, Integer maxIteration) {
+    private static void nonThreadedRun(Map<Racetrack, Map<CollisionModel, List<RacetrackLearner>>> learners, Map<Racetrack, Map<CollisionModel, PolicyTester>> policyTesters, Integer maxIteration, Path snapshotDir, Checkpointer checkpointer, boolean resume, LearningCurveSink metrics) {
         logger.debug("Starting a non threaded run...");
         Set<RacetrackLearner> activeLearners = new HashSet<>();
+        Map<RacetrackLearner, Timer> stepTimers = new HashMap<>();
         for (Map.Entry<Racetrack, Map<CollisionModel, List<RacetrackLearner>>> raceTrackEntry : learners.entrySet()) {
             for (Map.Entry<CollisionModel, List<RacetrackLearner>> collisionEntry : raceTrackEntry.getValue().entrySet()) {
                 activeLearners.addAll(collisionEntry.getValue());
+                for (RacetrackLearner learner : collisionEntry.getValue()) {
+                    PolicyTester policyTester = policyTesters.get(raceTrackEntry.getKey()).get(collisionEntry.getKey());
+                    resumeLearner(learner, policyTester, checkpointer, resume, metrics);
+                    stepTimers.put(learner, stepTimer(learner, policyTester));
+                }
             }
         }
 
@@ -257,11 +580,13 @@ public class Main {
                         if (!activeLearners.contains(learner)) {
                             continue;
                         }
-                        learner.next();
+                        PolicyTester policyTester = policyTesters.get(raceTrackEntry.getKey()).get(collisionEntry.getKey());
+                        step(learner, stepTimers.get(learner));
                         logger.debug("Finished next...");
                         Policy policy = learner.getPolicy();
-                        PolicyTester policyTester = policyTesters.get(raceTrackEntry.getKey()).get(collisionEntry.getKey());
+                        checkpointer.checkpointIfDue(learner, snapshotName(learner, policyTester));
                         Result result = policyTester.testPolicy(policy);
+                        recordResult(metrics, learner, policyTester, result);
                         logger.debug(
                                 "Result: " + result.getMean() +
                                         " with confidence of: " + result.getConfidence() +
@@ -274,9 +599,11 @@ public class Main {
                         if (learner.getIterationCount() >= maxIteration) {
                             logger.error("Max iteration count exceeded for: " + learner + "removing policy testers...");
                             activeLearners.remove(learner);
+                            saveSnapshot(learner, policyTester, snapshotDir);
                         } else if (learner.finished()) {
                             logger.info(learner + " finished! Removing policy testers...");
                             activeLearners.remove(learner);
+                            saveSnapshot(learner, policyTester, snapshotDir);
                         }
                     }
                 }
@@ -284,109 +611,40 @@ public class Main {
         }
     }
 
-    /**
-     * Creates a graph from the given parameters
-     *
-     * @param title of the graph
-     * @param iterationCounts the x-axis
-     * @param means the y-axis
-     * @param confidence the confidence interval
-     * @throws IOException cannot save graph
-     */
-    private static void makeChart(String title, List<Integer> iterationCounts, List<Double> means, List<Double> confidence, int iterationLimit) throws IOException {
-        DefaultCategoryDataset line_chart_dataset = new DefaultCategoryDataset();
-        DefaultCategoryDataset line_chart_dataset2 = new DefaultCategoryDataset();
-        for (int i = 0; i < iterationCounts.size(); i++) {
-            line_chart_dataset.addValue(means.get(i)-confidence.get(i), " confidence lower", iterationCounts.get(i));
-            line_chart_dataset.addValue(means.get(i)+confidence.get(i), " confidence upper", iterationCounts.get(i));
-            if (iterationCounts.get(i) >= iterationLimit) {
-                line_chart_dataset2.addValue(means.get(i)-confidence.get(i), " confidence lower", iterationCounts.get(i));
-                line_chart_dataset2.addValue(means.get(i)+confidence.get(i), " confidence upper", iterationCounts.get(i));
-            }
-        }
-
-        JFreeChart fullChart = ChartFactory.createLineChart(
-                title, "Iterations",
-                "Results",
-                line_chart_dataset, PlotOrientation.VERTICAL,
-                true,true,false);
-        CategoryPlot categoryPlot = fullChart.getCategoryPlot();
-        categoryPlot.setBackgroundPaint(Color.white);
-        categoryPlot.setDomainGridlinePaint(Color.lightGray);
-        categoryPlot.setRangeGridlinePaint(Color.lightGray);
-        categoryPlot.setDomainGridlinesVisible(true);
-        categoryPlot.getRenderer().setSeriesPaint(0, Color.black);
-        categoryPlot.getRenderer().setSeriesPaint(1, Color.black);
-        CategoryAxis domainAxis = categoryPlot.getDomainAxis();
-        domainAxis.setCategoryLabelPositions(CategoryLabelPositions.UP_45);
-
-        JFreeChart afterIterationCount = ChartFactory.createLineChart(
-                title+" after Iteration limit", "Iterations",
-                "Results",
-                line_chart_dataset2, PlotOrientation.VERTICAL,
-                true,true,false);
-        CategoryPlot categoryPlot2 = afterIterationCount.getCategoryPlot();
-        categoryPlot2.setBackgroundPaint(Color.white);
-        categoryPlot2.setDomainGridlinePaint(Color.lightGray);
-        categoryPlot2.setRangeGridlinePaint(Color.lightGray);
-        categoryPlot2.setDomainGridlinesVisible(true);
-        categoryPlot2.getRenderer().setSeriesPaint(0, Color.black);
-        categoryPlot2.getRenderer().setSeriesPaint(1, Color.black);
-        CategoryAxis domainAxis2 = categoryPlot2.getDomainAxis();
-        domainAxis2.setCategoryLabelPositions(CategoryLabelPositions.UP_45);
-
-
-
-        int width = 800; /* Width of the image */
-        int height = 600; /* Height of the image */
-        File fullLineChart = new File("results/"+title+".png" );
-        File afterIterationChart = new File("results/"+title+" after iteration limit.png" );
-        ChartUtilities.saveChartAsPNG(fullLineChart ,fullChart, width ,height);
-        ChartUtilities.saveChartAsPNG(afterIterationChart ,afterIterationCount, width ,height);
-    }
-
     /**
      * Runs the given learner with the policy tester
      *
      * @param learner to test
      * @param tester to test against
      * @param maxIterations to blow up at
-     * @return A list of results
+     * @param snapshotDir where to save the learner's snapshot when it stops, or null to not save it
+     * @param checkpointer to checkpoint the learner with
+     * @param resume whether to resume the learner from its checkpoint
+     * @param metrics to stream the learner's results to
+     * @return the result of the learner's final policy, or null if the learner was already done
      */
-    private static List<Result> runLearner(RacetrackLearner learner, PolicyTester tester, Integer maxIterations) {
-        List<Result> results = new ArrayList<>();
-        List<Integer> iterations = new ArrayList<>();
-        List<Double> confidence = new ArrayList<>();
-        List<Double> means = new ArrayList<>();
-        Integer iterationLimit = null;
+    private static Result runLearner(RacetrackLearner learner, PolicyTester tester, Integer maxIterations, Path snapshotDir, Checkpointer checkpointer, boolean resume, LearningCurveSink metrics) {
+        Result result = null;
         logger.info("Starting "+learner+ " "+tester+ "...");
+        resumeLearner(learner, tester, checkpointer, resume, metrics);
+        Timer timer = stepTimer(learner, tester);
         while (!learner.finished() && learner.getIterationCount() <= maxIterations) {
             logger.debug("Current iteration: "+learner.getIterationCount()+ "...");
-            learner.next();
+            step(learner, timer);
+            checkpointer.checkpointIfDue(learner, snapshotName(learner, tester));
 
             Policy policy = learner.getPolicy();
-            Result result = tester.testPolicy(policy);
-            if (!tester.atIterationLimit((int)result.getMean()*2) && iterationLimit == null) {
-                iterationLimit = learner.getIterationCount();
-            }
-            means.add(result.getMean());
-            iterations.add(learner.getIterationCount());
-            confidence.add(result.getConfidence());
-            results.add(tester.testPolicy(policy));
+            result = tester.testPolicy(policy);
+            recordResult(metrics, learner, tester, result);
         }
         logger.info("Finished "+learner+ " "+tester+ "...");
-        logger.info("Making Graph!");
-        try {
-            makeChart(learner + " on " + tester.getRacetrack() + " using " + tester.collisionModel(), iterations, means, confidence, iterationLimit);
-        } catch (IOException ex) {
-            logger.error("Could not save chart", ex);
-        }
+        saveSnapshot(learner, tester, snapshotDir);
         if (learner.finished()) {
             logger.debug(learner + " finished!");
         } else {
             logger.debug(learner + "did not terminate");
         }
-        return results;
+        return result;
     }
 
     /**
@@ -395,16 +653,20 @@ public class Main {
      * @param learners to test
      * @param policyTesters to test with
      * @param maxIteration finish if the max iteration count is run
+     * @param snapshotDir where to save the learners' snapshots when they stop, or null to not save them
+     * @param checkpointer to checkpoint the learners with
+     * @param resume whether to resume the learners from their checkpoints
+     * @param metrics to stream the learners' results to
      *
      * @throws Exception thrown by the thread pool
      */
-    private static void multiThreadedRun(Map<Racetrack, Map<CollisionModel, List<RacetrackLearner>>> learners, Map<Racetrack, Map<CollisionModel, PolicyTester>> policyTesters, Integer maxIteration) throws Exception{
+    private static void multiThreadedRun(Map<Racetrack, Map<CollisionModel, List<RacetrackLearner>>> learners, Map<Racetrack, Map<CollisionModel, PolicyTester>> policyTesters, Integer maxIteration, Path snapshotDir, Checkpointer checkpointer, boolean resume, LearningCurveSink metrics) throws Exception{
         ExecutorService executor = Executors.newWorkStealingPool();
-        List<Callable<List<Result>>> callables = new ArrayList<>();
+        List<Callable<Result>> callables = new ArrayList<>();
         for (Map.Entry<Racetrack, Map<CollisionModel, List<RacetrackLearner>>> entry : learners.entrySet()) {
             for (Map.Entry<CollisionModel, List<RacetrackLearner>> collisionEntry : entry.getValue().entrySet()) {
                 for (RacetrackLearner learner : collisionEntry.getValue()) {
-                    callables.add(() -> runLearner(learner, policyTesters.get(entry.getKey()).get(collisionEntry.getKey()), maxIteration));
+                    callables.add(() -> runLearner(learner, policyTesters.get(entry.getKey()).get(collisionEntry.getKey()), maxIteration, snapshotDir, checkpointer, resume, metrics));
                 }
             }
         }
@@ -418,7 +680,8 @@ public class Main {
                     catch (Exception e) {
                         throw new IllegalStateException(e);
                     }
-                }).forEach((results -> logger.info(results.stream().map((result -> result.getMean())).collect(Collectors.toList()))));
+                }).filter(result -> result != null)
+                .forEach((result -> logger.info(result.getMean())));
     }
 
     /**
@@ -430,13 +693,28 @@ public class Main {
         OptionParser parser = new OptionParser();
         parser.accepts("racetrack").withOptionalArg().ofType(String.class);
         parser.accepts("model").withOptionalArg().ofType(String.class);
+        parser.accepts("collision-engine").withRequiredArg().ofType(String.class).defaultsTo("floating-point");
         parser.accepts("learner").withOptionalArg().ofType(String.class);
         parser.accepts("max-iteration").withRequiredArg().ofType(Integer.class).defaultsTo(Integer.MAX_VALUE);
         parser.accepts("no-thread");
+        parser.accepts("parallel-sweep");
+        parser.accepts("initializer").withRequiredArg().ofType(String.class).defaultsTo("random");
         parser.accepts("num-tests").withRequiredArg().ofType(Integer.class).defaultsTo(20);
+        parser.accepts("seed").withRequiredArg().ofType(Long.class);
+        parser.accepts("snapshot-dir").withRequiredArg().ofType(String.class);
+        parser.accepts("load-policy").withRequiredArg().ofType(String.class);
+        parser.accepts("checkpoint-dir").withRequiredArg().ofType(String.class);
+        parser.accepts("checkpoint-interval").withRequiredArg().ofType(Integer.class).defaultsTo(60);
+        parser.accepts("resume");
         parser.accepts("result-loc").withRequiredArg().ofType(String.class).defaultsTo("/results");
         parser.accepts("sample-loc").withRequiredArg().ofType(String.class).defaultsTo("/sample_runs");
         parser.accepts("sample-run");
+        parser.accepts("metrics").withRequiredArg().ofType(String.class).defaultsTo("results/learning-curve.csv");
+        parser.accepts("charts");
+        parser.accepts("instrument");
+        parser.accepts("instrument-report").withRequiredArg().ofType(Integer.class).defaultsTo(60);
+        parser.accepts("server");
+        parser.accepts("transition-cache").withRequiredArg().ofType(String.class);
         return parser.parse(args);
     }
 }
@@ -1,7 +1,9 @@
 package com.ai;
 
 import com.ai.model.Action;
+import com.ai.model.Position;
 import com.ai.model.State;
+import com.ai.model.Velocity;
 
 /**
  * Basic interface to describe a policy. `getAction` describes what action to perform
@@ -9,7 +11,64 @@ import com.ai.model.State;
  *
  * This could involve stocastic factors, so the result from `getAction` can't be cached,
  * as the result may not be deterministic.
+ *
+ * `actionIndex` gives the same choice as the index of the action (see `Action.index`), straight from the
+ * coordinates of the state. The simulators use it on their hot paths, so policies that can look up
+ * their actions without building states should override it.
  */
 public interface Policy {
     public Action getAction(State state);
+
+    /**
+     * Gives the action to perform in the specified state, making any random choices with the given
+     * random source. Policies that make random choices should override this, so runs of the policy
+     * can be reproduced and run on several threads at once.
+     *
+     * @param state the state to act within
+     * @param random the random source to draw from
+     * @return the action to take in the given state
+     */
+    public default Action getAction(State state, RandomSource random) {
+        return getAction(state);
+    }
+
+    /**
+     * Determines whether this policy always gives the same action in the same state (and never gives none),
+     * in which case it can be looked up once per state and then simulated in bulk.
+     *
+     * @return whether the policy is deterministic
+     */
+    public default boolean isDeterministic() {
+        return false;
+    }
+
+    /**
+     * Gives the index of the action to perform in the specified state.
+     *
+     * @param x the x-coordinate of the state's position
+     * @param y the y-coordinate of the state's position
+     * @param vx the x-component of the state's velocity
+     * @param vy the y-component of the state's velocity
+     * @return the index of the action to take, or -1 if the policy has no action for the state
+     */
+    public default int actionIndex(int x, int y, int vx, int vy) {
+        Action action = getAction(new State(new Position(x, y), new Velocity(vx, vy)));
+        return action == null ? -1 : action.index();
+    }
+
+    /**
+     * Gives the index of the action to perform in the specified state, making any random choices
+     * with the given random source.
+     *
+     * @param x the x-coordinate of the state's position
+     * @param y the y-coordinate of the state's position
+     * @param vx the x-component of the state's velocity
+     * @param vy the y-component of the state's velocity
+     * @param random the random source to draw from
+     * @return the index of the action to take, or -1 if the policy has no action for the state
+     */
+    public default int actionIndex(int x, int y, int vx, int vy, RandomSource random) {
+        Action action = getAction(new State(new Position(x, y), new Velocity(vx, vy)), random);
+        return action == null ? -1 : action.index();
+    }
 }
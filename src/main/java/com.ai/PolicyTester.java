@@ -1,23 +1,40 @@
 package com.ai;
 
+import com.ai.metrics.Instrumentation;
+import com.ai.metrics.Timer;
+import com.ai.sim.BatchRaceSimulator;
 import com.ai.sim.CollisionModel;
 import com.ai.sim.RaceSimulator;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 /**
  * Class for testing how well a given policy performs on a given track and collision model.
+ *
+ * The runs of a test are spread across the common fork-join pool. Each run draws from its own random
+ * source, split off in order from the tester's, so a seeded tester gives the same run lengths
+ * however the runs are scheduled.
+ *
+ * Deterministic policies are tabulated once per test and their runs are simulated in batches of `BATCH_SIZE`
+ * (see `BatchRaceSimulator`), with each batch drawing from the source of its first run. This makes tests with
+ * thousands of runs cheap enough to do after every round of learning.
  */
 public class PolicyTester {
     private final Racetrack racetrack;
     private final RaceSimulator raceSimulator;
     private final CollisionModel collisionModel;
+    private final RandomSource random;
 
     private final int numTests;
 
     private static final int DEFAULT_NUM_TESTS = 20;
-    private static final int EARLY_STOP_TESTS = 10;
+    static final int EARLY_STOP_TESTS = 10;
+    private static final int BATCH_SIZE = 256;
+    private static final Timer TEST_POLICY = Instrumentation.timer("policyTester.testPolicy");
 
     public PolicyTester(Racetrack racetrack, CollisionModel collisionModel) {
         this(racetrack, collisionModel, DEFAULT_NUM_TESTS);
@@ -33,10 +50,19 @@ public class PolicyTester {
     }
 
     public PolicyTester(Racetrack racetrack, CollisionModel collisionModel, int numTests) {
+        this(racetrack, collisionModel, numTests, RandomSource.threadLocal());
+    }
+
+    public PolicyTester(Racetrack racetrack, CollisionModel collisionModel, int numTests, long seed) {
+        this(racetrack, collisionModel, numTests, RandomSource.seeded(seed));
+    }
+
+    public PolicyTester(Racetrack racetrack, CollisionModel collisionModel, int numTests, RandomSource random) {
         this.racetrack = racetrack;
         this.raceSimulator = new RaceSimulator(racetrack, collisionModel);
         this.numTests = numTests;
         this.collisionModel = collisionModel;
+        this.random = random;
     }
 
     public Racetrack getRacetrack() {
@@ -66,22 +92,84 @@ public class PolicyTester {
      * @return the result of testing the policy
      */
     public Result testPolicy(Policy policy, int numTests) {
-        List<Integer> runData = new ArrayList<>();
-        boolean terminated = false;
+        long start = TEST_POLICY.start();
+        RandomSource[] streams = splitStreams(numTests);
+        byte[] actions = policy.isDeterministic() ? raceSimulator.getBatchSimulator().actionTable(policy) : null;
 
-        for (int i = 0; i < numTests; i++) {
-            if (i == EARLY_STOP_TESTS && !terminated) {
-                break;
-            }
+        //run the first `EARLY_STOP_TESTS` together, and only run the rest if any of them terminated
+        int earlyTests = Math.min(numTests, EARLY_STOP_TESTS);
+        List<Integer> runData = runTests(policy, actions, streams, 0, earlyTests);
+        boolean terminated = runData.stream().anyMatch(runLength -> !raceSimulator.atIterationLimit(runLength));
 
-            int runLength = raceSimulator.runPolicy(racetrack.randomStartingPosition(), policy);
-            if (!terminated) {
-                terminated = !raceSimulator.atIterationLimit(runLength);
-            }
-            runData.add(runLength);
+        if (terminated) {
+            runData.addAll(runTests(policy, actions, streams, earlyTests, numTests));
         }
+        TEST_POLICY.stop(start);
         return new Result(runData);
     }
+
+    private List<Integer> runTests(Policy policy, byte[] actions, RandomSource[] streams, int from, int to) {
+        if (actions != null) {
+            return runBatches(actions, streams, from, to);
+        }
+        return runTests(policy, streams, from, to);
+    }
+
+    /**
+     * Splits a random source off for each run of a test.
+     *
+     * Testers may be shared by learners running on different threads, so splitting is synchronized.
+     *
+     * @param numTests the number of runs in the test
+     * @return a random source for each run
+     */
+    private synchronized RandomSource[] splitStreams(int numTests) {
+        RandomSource[] streams = new RandomSource[numTests];
+        for (int i = 0; i < numTests; i++) {
+            streams[i] = random.split();
+        }
+        return streams;
+    }
+
+    /**
+     * Runs a range of the runs of a test in parallel.
+     *
+     * @param policy the policy to test
+     * @param streams the random source for each run
+     * @param from the first run to run
+     * @param to the run after the last one to run
+     * @return the lengths of the runs, in order
+     */
+    private List<Integer> runTests(Policy policy, RandomSource[] streams, int from, int to) {
+        return IntStream.range(from, to)
+                .parallel()
+                .mapToObj(i -> raceSimulator.runPolicy(racetrack.randomStartingPosition(streams[i]), policy, streams[i]))
+                .collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    /**
+     * Runs a range of the runs of a test with a tabulated policy, in parallel batches.
+     *
+     * @param actions the policy's action index for each state
+     * @param streams the random source for each run
+     * @param from the first run to run
+     * @param to the run after the last one to run
+     * @return the lengths of the runs, in order
+     */
+    private List<Integer> runBatches(byte[] actions, RandomSource[] streams, int from, int to) {
+        BatchRaceSimulator batchSimulator = raceSimulator.getBatchSimulator();
+        int batches = (to - from + BATCH_SIZE - 1) / BATCH_SIZE;
+
+        return IntStream.range(0, batches)
+                .parallel()
+                .mapToObj(batch -> {
+                    int start = from + batch * BATCH_SIZE;
+                    return batchSimulator.runPolicy(actions, Math.min(BATCH_SIZE, to - start), streams[start]);
+                })
+                .flatMapToInt(Arrays::stream)
+                .boxed()
+                .collect(Collectors.toCollection(ArrayList::new));
+    }
 }
 
 /**
@@ -102,6 +190,15 @@ class Result {
         this.data = data;
     }
 
+    /**
+     * Gives the number of run lengths in the sample.
+     *
+     * @return the sample size
+     */
+    public int getSampleSize() {
+        return data.size();
+    }
+
     /**
      * Generates or retrieves the mean for the given sample data.
      *
@@ -1,6 +1,7 @@
 package com.ai;
 
 import com.ai.model.Position;
+import com.ai.model.StateIndex;
 
 import java.io.BufferedReader;
 import java.io.IOException;
@@ -10,25 +11,100 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
 
 /**
  * Immutable object for storing basic info about a racetrack.
+ *
+ * The cells are stored as a grid of 2-bit cell types, 32 to a long, row by row. Positions off the racetrack
+ * are walls, which a single combined sign test catches before the grid is read.
  */
 public class Racetrack {
-    private final boolean[][] isSafe;
+    /* The cell types, which are also the values hashed for each cell */
+    private static final int WALL = 0;
+    private static final int TRACK = 1;
+    private static final int START = 2;
+    private static final int FINISH = 3;
+
+    private static final int CELLS_PER_WORD = 32; //2 bits per cell in a long
+
+    private final long[] cells;
     private final int width, height;
+    private final StateIndex stateIndex;
+    private final long contentHash;
     private String name = "No name specified";
     
     private final Set<Position> startingLine;
     private final Set<Position> finishLine;
 
+    /* Values derived from the racetrack, such as its compiled MDPs, which are dropped along with it */
+    private final ConcurrentMap<Object, Object> derived = new ConcurrentHashMap<>();
+
     private Racetrack(boolean[][] isSafe, Set<Position> startingLine, Set<Position> finishLine) {
-        this.isSafe = isSafe;
         width = isSafe.length;
         height = isSafe[0].length;
+        stateIndex = new StateIndex(width, height);
+
+        cells = new long[(width * height + CELLS_PER_WORD - 1) / CELLS_PER_WORD];
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                if (isSafe[x][y]) {
+                    setCell(x, y, TRACK);
+                }
+            }
+        }
+        for (Position position : startingLine) {
+            setCell(position.getX(), position.getY(), START);
+        }
+        for (Position position : finishLine) {
+            setCell(position.getX(), position.getY(), FINISH);
+        }
 
-        this.startingLine = Collections.unmodifiableSet(startingLine);
+        //start races from the canonical positions, so their states are shared too
+        Set<Position> canonicalStartingLine = new HashSet<>();
+        for (Position position : startingLine) {
+            canonicalStartingLine.add(stateIndex.position(position.getX(), position.getY()));
+        }
+        this.startingLine = Collections.unmodifiableSet(canonicalStartingLine);
         this.finishLine = Collections.unmodifiableSet(finishLine);
+        this.contentHash = hashContent();
+    }
+
+    /**
+     * Hashes the size and every cell of the racetrack with 64-bit FNV-1a, so two racetracks
+     * with the same layout always hash the same, whatever they are named.
+     *
+     * @return the hash of the racetrack's layout
+     */
+    private long hashContent() {
+        long hash = 0xcbf29ce484222325L;
+        hash = (hash ^ width) * 0x100000001b3L;
+        hash = (hash ^ height) * 0x100000001b3L;
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                hash = (hash ^ cell(x, y)) * 0x100000001b3L;
+            }
+        }
+        return hash;
+    }
+
+    private void setCell(int x, int y, int type) {
+        int index = y * width + x;
+        int shift = (index & (CELLS_PER_WORD - 1)) << 1;
+        cells[index >>> 5] = cells[index >>> 5] & ~(3L << shift) | (long)type << shift;
+    }
+
+    /**
+     * Gives the type of the cell at the given coordinates, which is a wall anywhere off the racetrack.
+     */
+    private int cell(int x, int y) {
+        if ((x | y | width - 1 - x | height - 1 - y) < 0) {
+            return WALL;
+        }
+        int index = y * width + x;
+        return (int)(cells[index >>> 5] >>> ((index & (CELLS_PER_WORD - 1)) << 1)) & 3;
     }
 
     /**
@@ -98,10 +174,50 @@ public class Racetrack {
      * @return whether or not the position is safe
      */
     public boolean isSafe(Position position) {
-        if (position.getX() < 0 || position.getX() >= width ||
-            position.getY() < 0 || position.getY() >= height)
-            return false;
-        return isSafe[position.getX()][position.getY()];
+        return isSafe(position.getX(), position.getY());
+    }
+
+    /**
+     * Determines whether the position at the given coordinates is safe to be on.
+     *
+     * @param x the x-coordinate of the position
+     * @param y the y-coordinate of the position
+     * @return whether or not the position is safe
+     */
+    public boolean isSafe(int x, int y) {
+        return cell(x, y) != WALL;
+    }
+
+    /**
+     * Determines whether the given position is on the finish line.
+     *
+     * @param position the position to check
+     * @return whether or not the position is an ending position
+     */
+    public boolean isFinish(Position position) {
+        return isFinish(position.getX(), position.getY());
+    }
+
+    /**
+     * Determines whether the position at the given coordinates is on the finish line.
+     *
+     * @param x the x-coordinate of the position
+     * @param y the y-coordinate of the position
+     * @return whether or not the position is an ending position
+     */
+    public boolean isFinish(int x, int y) {
+        return cell(x, y) == FINISH;
+    }
+
+    /**
+     * Determines whether the position at the given coordinates is on the starting line.
+     *
+     * @param x the x-coordinate of the position
+     * @param y the y-coordinate of the position
+     * @return whether or not the position is a starting position
+     */
+    public boolean isStart(int x, int y) {
+        return cell(x, y) == START;
     }
 
     /**
@@ -122,6 +238,39 @@ public class Racetrack {
         return height;
     }
 
+    /**
+     * Gives a hash of the racetrack's layout, which identifies the racetrack in saved policies.
+     *
+     * @return the hash of the racetrack's layout
+     */
+    public long getContentHash() {
+        return contentHash;
+    }
+
+    /**
+     * Gives the index of the states on this racetrack, which also hands out their canonical objects.
+     *
+     * @return the racetrack's state index
+     */
+    public StateIndex getStateIndex() {
+        return stateIndex;
+    }
+
+    /**
+     * Gives a value derived from this racetrack, making it the first time it is asked for.
+     *
+     * The value is kept by the racetrack itself rather than in a registry keyed by the racetrack, so it is
+     * dropped along with the racetrack even though it refers back to it.
+     *
+     * @param key the key the value is kept under, such as the class that derives it
+     * @param make makes the value, which should be cheap, since other threads asking for it wait
+     * @return the derived value
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T derived(Object key, Supplier<T> make) {
+        return (T) derived.computeIfAbsent(key, k -> make.get());
+    }
+
     /**
      * Gives all the positions that are starting positions on this racetrack.
      *
@@ -138,8 +287,18 @@ public class Racetrack {
      * @return a random starting position for this racetrack
      */
     public Position randomStartingPosition() {
+        return randomStartingPosition(RandomSource.threadLocal());
+    }
+
+    /**
+     * Gives a random starting position, drawn from the given random source.
+     *
+     * @param random the random source to draw from
+     * @return a random starting position for this racetrack
+     */
+    public Position randomStartingPosition(RandomSource random) {
         Iterator<Position> iter = startingLine.iterator();
-        int randomIndex = (int)(Math.random() * startingLine.size());
+        int randomIndex = random.nextInt(startingLine.size());
 
         for(; randomIndex != 0; randomIndex--) {
             iter.next();
@@ -0,0 +1,197 @@
+package com.ai;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A source of random numbers for the learners, simulators and policy testers.
+ *
+ * A seeded source makes the same draws as a `SplittableRandom`, so a run seeded the same way makes the
+ * same draws. Unlike a `SplittableRandom`, its state can be saved and restored (see `getState`), so a
+ * learner can be checkpointed without disturbing its draws. It must only be used by one thread at a time;
+ * threads should each `split` off their own source.
+ *
+ * The unseeded source draws from the calling thread's `ThreadLocalRandom`, so it can be shared between
+ * threads without them contending on a single generator (unlike `Math.random`).
+ */
+public interface RandomSource {
+    /**
+     * Gives a random number uniformly drawn from [0, 1).
+     *
+     * @return the random number
+     */
+    double nextDouble();
+
+    /**
+     * Gives a random number uniformly drawn from [0, bound).
+     *
+     * @param bound the upper bound, which must be positive
+     * @return the random number
+     */
+    int nextInt(int bound);
+
+    /**
+     * Gives a random number uniformly drawn from all longs, which is useful for seeding another source.
+     *
+     * @return the random number
+     */
+    long nextLong();
+
+    /**
+     * Gives a new source of random numbers, independent of this one, for use on another thread
+     * or by another learner. Splitting a seeded source always gives the same sequence of sources.
+     *
+     * @return the new source
+     */
+    RandomSource split();
+
+    /**
+     * Gives the state of this source, which `restore` turns back into a source that makes the same draws
+     * this one goes on to make. Reading the state doesn't draw anything.
+     *
+     * @return the state, or null if the source is unseeded and has no state to save
+     */
+    default long[] getState() {
+        return null;
+    }
+
+    /**
+     * Gives a seeded source of random numbers.
+     *
+     * @param seed the seed to start from
+     * @return the random source
+     */
+    static RandomSource seeded(long seed) {
+        return new SplittableRandomSource(seed, SplittableRandomSource.GOLDEN_GAMMA);
+    }
+
+    /**
+     * Gives a seeded source of random numbers from the state of another (see `getState`).
+     *
+     * @param state the state to restore
+     * @return the random source
+     */
+    static RandomSource restore(long[] state) {
+        if (state.length != 2 || (state[1] & 1) == 0) {
+            throw new IllegalArgumentException("Not the state of a seeded random source");
+        }
+        return new SplittableRandomSource(state[0], state[1]);
+    }
+
+    /**
+     * Gives the unseeded source of random numbers, which is safe to share between threads.
+     *
+     * @return the random source
+     */
+    static RandomSource threadLocal() {
+        return ThreadLocalRandomSource.INSTANCE;
+    }
+}
+
+/**
+ * A seeded random source using the SplitMix64 generator of `SplittableRandom`, which gives exactly the same
+ * draws as a `SplittableRandom`, but whose state (a seed and an odd gamma it is advanced by) is readable.
+ */
+class SplittableRandomSource implements RandomSource {
+    static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+    private static final double DOUBLE_UNIT = 0x1.0p-53;
+
+    private long seed;
+    private final long gamma;
+
+    SplittableRandomSource(long seed, long gamma) {
+        this.seed = seed;
+        this.gamma = gamma;
+    }
+
+    private long nextSeed() {
+        return seed += gamma;
+    }
+
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    private static int mix32(long z) {
+        z = (z ^ (z >>> 33)) * 0x62a9d9ed799705f5L;
+        return (int)(((z ^ (z >>> 28)) * 0xcb24d0a5c88c35b3L) >>> 32);
+    }
+
+    private static long mixGamma(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        z = (z ^ (z >>> 33)) | 1L;
+        //make sure the gamma has enough bit transitions to mix well
+        return Long.bitCount(z ^ (z >>> 1)) < 24 ? z ^ 0xaaaaaaaaaaaaaaaaL : z;
+    }
+
+    @Override
+    public double nextDouble() {
+        return (mix64(nextSeed()) >>> 11) * DOUBLE_UNIT;
+    }
+
+    @Override
+    public int nextInt(int bound) {
+        if (bound <= 0) {
+            throw new IllegalArgumentException("The bound must be positive");
+        }
+        int r = mix32(nextSeed());
+        int m = bound - 1;
+        if ((bound & m) == 0) {
+            return r & m;
+        }
+        //reject the over-represented draws
+        for (int u = r >>> 1; u + m - (r = u % bound) < 0; u = mix32(nextSeed()) >>> 1) {
+        }
+        return r;
+    }
+
+    @Override
+    public long nextLong() {
+        return mix64(nextSeed());
+    }
+
+    @Override
+    public RandomSource split() {
+        return new SplittableRandomSource(nextLong(), mixGamma(nextSeed()));
+    }
+
+    @Override
+    public long[] getState() {
+        return new long[] {seed, gamma};
+    }
+}
+
+/**
+ * The unseeded random source, which draws from the calling thread's `ThreadLocalRandom`.
+ */
+class ThreadLocalRandomSource implements RandomSource {
+    static final ThreadLocalRandomSource INSTANCE = new ThreadLocalRandomSource();
+
+    private ThreadLocalRandomSource() {
+    }
+
+    @Override
+    public double nextDouble() {
+        return ThreadLocalRandom.current().nextDouble();
+    }
+
+    @Override
+    public int nextInt(int bound) {
+        return ThreadLocalRandom.current().nextInt(bound);
+    }
+
+    @Override
+    public long nextLong() {
+        return ThreadLocalRandom.current().nextLong();
+    }
+
+    /**
+     * Every thread already has its own generator, so there is nothing to split.
+     */
+    @Override
+    public RandomSource split() {
+        return this;
+    }
+}
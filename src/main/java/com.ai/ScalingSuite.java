@@ -0,0 +1,154 @@
+package com.ai;
+
+import com.ai.alg.QLearning;
+import com.ai.alg.RacetrackLearner;
+import com.ai.alg.SARSA;
+import com.ai.alg.UtilityInitializer;
+import com.ai.alg.ValueIteration;
+import com.ai.sim.Collision;
+import com.ai.sim.CollisionModel;
+import com.ai.sim.CompiledRacetrackMDP;
+import joptsimple.OptionParser;
+import joptsimple.OptionSet;
+import org.apache.log4j.Logger;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Measures how the learners and the policy tester scale with the size of the racetrack, on square
+ * racetracks made by `TrackGenerator`.
+ *
+ * For every size it records the number of reachable states, how long the MDP takes to compile, how long
+ * value iteration takes to sweep, how many episodes SARSA and QLearning run per second, how long a policy
+ * test takes, and the peak heap used. Each size is written to a CSV file as soon as it is measured, and the suite stops at
+ * the first size that runs out of memory.
+ *
+ * States are only made at the positions a race can reach, so memory grows with the length of the generated corridor
+ * rather than the area of the racetrack. The default sizes go up to 2000x2000, which needs a heap of several gigabytes
+ * for the compiled MDP alone.
+ *
+ * Runs as:
+ *  $ java -Xmx8g -cp racetrack_ai.jar com.ai.ScalingSuite --sizes 50,100,200,400,800,1000,2000 --corridor-width 4 --output results/scaling.csv
+ */
+public class ScalingSuite {
+    private static final Logger logger = Logger.getLogger(ScalingSuite.class);
+    private static final String HEADER = "size,states,build_ms,sweep_ms,sarsa_episodes_per_s,qlearning_episodes_per_s,policy_test_ms,peak_heap_mb";
+
+    public static void main(String ... args) throws IOException {
+        OptionParser parser = new OptionParser();
+        parser.accepts("sizes").withRequiredArg().ofType(Integer.class).withValuesSeparatedBy(',').defaultsTo(50, 100, 200, 400, 800, 1000, 2000);
+        parser.accepts("corridor-width").withRequiredArg().ofType(Integer.class).defaultsTo(4);
+        parser.accepts("curvature").withRequiredArg().ofType(Double.class).defaultsTo(0.3);
+        parser.accepts("seed").withRequiredArg().ofType(Long.class).defaultsTo(1L);
+        parser.accepts("model").withRequiredArg().ofType(String.class).defaultsTo("stop");
+        parser.accepts("sweeps").withRequiredArg().ofType(Integer.class).defaultsTo(5);
+        parser.accepts("episode-budget").withRequiredArg().ofType(Integer.class).defaultsTo(10);
+        parser.accepts("num-tests").withRequiredArg().ofType(Integer.class).defaultsTo(20);
+        parser.accepts("output").withRequiredArg().ofType(String.class).defaultsTo("results/scaling.csv");
+        OptionSet options = parser.parse(args);
+
+        TrackGenerator generator = new TrackGenerator((Long) options.valueOf("seed"))
+                .withCorridorWidth((Integer) options.valueOf("corridor-width"))
+                .withCurvature((Double) options.valueOf("curvature"));
+        CollisionModel collisionModel = options.valueOf("model").equals("restart") ? Collision.RESTART : Collision.STOP;
+        RandomSource random = RandomSource.seeded((Long) options.valueOf("seed"));
+
+        Path output = Paths.get(options.valueOf("output").toString());
+        if (output.getParent() != null) {
+            Files.createDirectories(output.getParent());
+        }
+        try (BufferedWriter out = Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+            out.write(HEADER);
+            out.newLine();
+            for (Object size : options.valuesOf("sizes")) {
+                String row;
+                try {
+                    row = measure(generator.generate((Integer) size, (Integer) size), collisionModel, options, random);
+                } catch (OutOfMemoryError e) {
+                    logger.error("Ran out of memory on a " + size + "x" + size + " racetrack, stopping...");
+                    break;
+                }
+                logger.info(HEADER + System.lineSeparator() + row);
+                out.write(row);
+                out.newLine();
+                out.flush();
+            }
+        }
+    }
+
+    /**
+     * Measures the learners and the policy tester on a racetrack.
+     *
+     * @return the CSV row of measurements
+     */
+    private static String measure(Racetrack racetrack, CollisionModel collisionModel, OptionSet options, RandomSource random) {
+        List<MemoryPoolMXBean> heapPools = heapPools();
+        System.gc();
+        heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+        logger.info("Measuring " + racetrack + "...");
+
+        long start = System.nanoTime();
+        int states = CompiledRacetrackMDP.forTrack(racetrack, collisionModel).getTransitionTable().size();
+        double buildMillis = (System.nanoTime() - start) / 1e6;
+
+        ValueIteration valueIteration = new ValueIteration(racetrack, collisionModel, UtilityInitializer.RANDOM, false, random.split());
+
+        int sweeps = (Integer) options.valueOf("sweeps");
+        start = System.nanoTime();
+        for (int i = 0; i < sweeps; i++) {
+            valueIteration.next();
+        }
+        double sweepMillis = (System.nanoTime() - start) / 1e6 / sweeps;
+
+        long budget = TimeUnit.SECONDS.toNanos((Integer) options.valueOf("episode-budget"));
+        double sarsaEpisodes = episodesPerSecond(new SARSA(racetrack, collisionModel, random.split()), budget);
+        double qLearningEpisodes = episodesPerSecond(new QLearning(racetrack, collisionModel, random.split()), budget);
+
+        PolicyTester policyTester = new PolicyTester(racetrack, collisionModel, (Integer) options.valueOf("num-tests"), random.split());
+        Policy policy = valueIteration.getPolicy();
+        start = System.nanoTime();
+        policyTester.testPolicy(policy);
+        double testMillis = (System.nanoTime() - start) / 1e6;
+
+        long peakHeap = 0;
+        for (MemoryPoolMXBean pool : heapPools) {
+            peakHeap += pool.getPeakUsage().getUsed();
+        }
+
+        return String.format(Locale.ROOT, "%d,%d,%.1f,%.2f,%.2f,%.2f,%.1f,%.1f", racetrack.getWidth(), states,
+                buildMillis, sweepMillis, sarsaEpisodes, qLearningEpisodes, testMillis, peakHeap / 1048576.0);
+    }
+
+    /**
+     * Runs episodes of a learner until the budget is spent, always finishing the episode it is on.
+     */
+    private static double episodesPerSecond(RacetrackLearner learner, long budgetNanos) {
+        long start = System.nanoTime();
+        int episodes = 0;
+        long elapsed;
+        do {
+            learner.next();
+            episodes++;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < budgetNanos && !learner.finished());
+        return episodes * 1e9 / elapsed;
+    }
+
+    private static List<MemoryPoolMXBean> heapPools() {
+        return ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,271 @@
+package com.ai;
+
+import joptsimple.OptionParser;
+import joptsimple.OptionSet;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+/**
+ * Generates racetracks of any size from a seed, in the format read by `Racetrack.fromStream`.
+ *
+ * The racetrack is laid out on a grid of square blocks, each as wide as the corridor and walled off from
+ * its neighbours. A randomized depth-first search joins the blocks into a maze, and the longest path from
+ * the bottom-left block is carved out as the corridor, with the starting line across its first block and
+ * the finish line across its last. Since only that path is carved, the corridor never touches itself, so
+ * there are no shortcuts to the finish.
+ *
+ * The curvature is the chance that the search turns rather than carrying straight on, so 0 gives long
+ * straights and 1 gives a corridor that turns at nearly every block.
+ *
+ * Generates a racetrack file:
+ *  $ java -cp racetrack_ai.jar com.ai.TrackGenerator --width 500 --height 500 --corridor-width 6 --curvature 0.3 --seed 1 track.txt
+ */
+public class TrackGenerator {
+    /* The directions the search moves between blocks: right, down, left, up */
+    private static final int[] DX = {1, 0, -1, 0};
+    private static final int[] DY = {0, 1, 0, -1};
+
+    private final long seed;
+    private int corridorWidth = 4;
+    private double curvature = 0.3;
+
+    /**
+     * Make a generator that always gives the same racetrack for the same seed, size and settings.
+     *
+     * @param seed the seed to generate from
+     */
+    public TrackGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Set how many cells wide the corridor is.
+     *
+     * @param corridorWidth the width of the corridor, which must be positive
+     * @return the current generator
+     */
+    public TrackGenerator withCorridorWidth(int corridorWidth) {
+        if (corridorWidth < 1) {
+            throw new IllegalArgumentException("The corridor must be at least 1 cell wide");
+        }
+        this.corridorWidth = corridorWidth;
+        return this;
+    }
+
+    /**
+     * Set the chance of the corridor turning at each block.
+     *
+     * @param curvature the chance of turning, from 0 to 1
+     * @return the current generator
+     */
+    public TrackGenerator withCurvature(double curvature) {
+        if (curvature < 0 || curvature > 1) {
+            throw new IllegalArgumentException("The curvature must be between 0 and 1");
+        }
+        this.curvature = curvature;
+        return this;
+    }
+
+    /**
+     * Generate a racetrack of the given size, named after its size and seed.
+     *
+     * @param width the width of the racetrack
+     * @param height the height of the racetrack
+     * @return the racetrack
+     */
+    public Racetrack generate(int width, int height) {
+        StringWriter out = new StringWriter();
+        try {
+            write(width, height, out);
+            return Racetrack.fromStream(new ByteArrayInputStream(out.toString().getBytes(StandardCharsets.US_ASCII)))
+                    .withName("generated_" + width + "x" + height + "_" + seed);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Write a racetrack of the given size in the format read by `Racetrack.fromStream`.
+     *
+     * @param width the width of the racetrack
+     * @param height the height of the racetrack
+     * @param out the writer to write to
+     * @throws IOException if the racetrack cannot be written
+     */
+    public void write(int width, int height, Writer out) throws IOException {
+        char[][] rows = layout(width, height);
+        out.write(height + "," + width);
+        out.write('\n');
+        for (char[] row : rows) {
+            out.write(row);
+            out.write('\n');
+        }
+        out.flush();
+    }
+
+    /**
+     * Lays out the racetrack as rows of cells, from top to bottom.
+     */
+    private char[][] layout(int width, int height) {
+        int pitch = corridorWidth + 1;
+        int blocksX = (width - 1) / pitch;
+        int blocksY = (height - 1) / pitch;
+        if (blocksX < 1 || blocksY < 1 || blocksX * blocksY < 2) {
+            throw new IllegalArgumentException("A " + width + "x" + height + " racetrack is too small for a corridor "
+                    + corridorWidth + " cells wide");
+        }
+
+        int[] path = longestPath(blocksX, blocksY);
+
+        char[][] rows = new char[height][width];
+        for (char[] row : rows) {
+            Arrays.fill(row, '#');
+        }
+
+        for (int i = 0; i < path.length; i++) {
+            int x = 1 + path[i] % blocksX * pitch;
+            int y = 1 + path[i] / blocksX * pitch;
+            fill(rows, x, y, corridorWidth, corridorWidth, '.');
+
+            //open the wall to the next block
+            if (i + 1 < path.length) {
+                int direction = direction(path[i], path[i + 1], blocksX);
+                if (DX[direction] != 0) {
+                    fill(rows, DX[direction] > 0 ? x + corridorWidth : x - 1, y, 1, corridorWidth, '.');
+                } else {
+                    fill(rows, x, DY[direction] > 0 ? y + corridorWidth : y - 1, corridorWidth, 1, '.');
+                }
+            }
+        }
+
+        //the starting line is on the far side of the first block from the second, and the finish line
+        //on the far side of the last block from the one before it
+        markEdge(rows, path[0], direction(path[1], path[0], blocksX), blocksX, 'S');
+        markEdge(rows, path[path.length - 1], direction(path[path.length - 2], path[path.length - 1], blocksX), blocksX, 'F');
+        return rows;
+    }
+
+    /**
+     * Joins the blocks into a maze with a randomized depth-first search from the bottom-left block, and gives
+     * the blocks on the longest path from there, in order.
+     */
+    private int[] longestPath(int blocksX, int blocksY) {
+        RandomSource random = RandomSource.seeded(seed);
+        int blocks = blocksX * blocksY;
+        int[] parent = new int[blocks];
+        int[] heading = new int[blocks];
+        boolean[] visited = new boolean[blocks];
+
+        int[] stack = new int[blocks];
+        int[] candidates = new int[4];
+        int start = (blocksY - 1) * blocksX;
+        int depth = 0, deepest = start, deepestDepth = 0;
+        stack[0] = start;
+        visited[start] = true;
+        parent[start] = -1;
+        heading[start] = 3;
+
+        while (depth >= 0) {
+            int block = stack[depth];
+            int x = block % blocksX, y = block / blocksX;
+
+            //carry straight on unless the curvature says to turn, or straight on is taken
+            int next = -1;
+            int straightX = x + DX[heading[block]], straightY = y + DY[heading[block]];
+            boolean canGoStraight = inBounds(straightX, straightY, blocksX, blocksY) && !visited[straightY * blocksX + straightX];
+            int turns = 0;
+            for (int direction = 0; direction < 4; direction++) {
+                int nx = x + DX[direction], ny = y + DY[direction];
+                if (direction != heading[block] && inBounds(nx, ny, blocksX, blocksY) && !visited[ny * blocksX + nx]) {
+                    candidates[turns++] = direction;
+                }
+            }
+            if (canGoStraight && (turns == 0 || random.nextDouble() >= curvature)) {
+                next = heading[block];
+            } else if (turns > 0) {
+                next = candidates[random.nextInt(turns)];
+            }
+
+            if (next < 0) {
+                depth--;
+                continue;
+            }
+
+            int child = (y + DY[next]) * blocksX + x + DX[next];
+            visited[child] = true;
+            parent[child] = block;
+            heading[child] = next;
+            stack[++depth] = child;
+            if (depth > deepestDepth) {
+                deepestDepth = depth;
+                deepest = child;
+            }
+        }
+
+        int[] path = new int[deepestDepth + 1];
+        for (int i = deepestDepth, block = deepest; i >= 0; i--, block = parent[block]) {
+            path[i] = block;
+        }
+        return path;
+    }
+
+    private static boolean inBounds(int x, int y, int blocksX, int blocksY) {
+        return 0 <= x && x < blocksX && 0 <= y && y < blocksY;
+    }
+
+    /**
+     * Gives the direction from one block to the next block beside it.
+     */
+    private static int direction(int from, int to, int blocksX) {
+        int difference = to - from;
+        return difference == 1 ? 0 : difference == blocksX ? 1 : difference == -1 ? 2 : 3;
+    }
+
+    /**
+     * Marks the edge of a block on the given side.
+     */
+    private void markEdge(char[][] rows, int block, int side, int blocksX, char cell) {
+        int pitch = corridorWidth + 1;
+        int x = 1 + block % blocksX * pitch;
+        int y = 1 + block / blocksX * pitch;
+        if (DX[side] != 0) {
+            fill(rows, DX[side] > 0 ? x + corridorWidth - 1 : x, y, 1, corridorWidth, cell);
+        } else {
+            fill(rows, x, DY[side] > 0 ? y + corridorWidth - 1 : y, corridorWidth, 1, cell);
+        }
+    }
+
+    private static void fill(char[][] rows, int x, int y, int width, int height, char cell) {
+        for (int row = y; row < y + height; row++) {
+            Arrays.fill(rows[row], x, x + width, cell);
+        }
+    }
+
+    public static void main(String ... args) throws IOException {
+        OptionParser parser = new OptionParser();
+        parser.accepts("width").withRequiredArg().ofType(Integer.class).defaultsTo(500);
+        parser.accepts("height").withRequiredArg().ofType(Integer.class).defaultsTo(500);
+        parser.accepts("corridor-width").withRequiredArg().ofType(Integer.class).defaultsTo(4);
+        parser.accepts("curvature").withRequiredArg().ofType(Double.class).defaultsTo(0.3);
+        parser.accepts("seed").withRequiredArg().ofType(Long.class).defaultsTo(1L);
+        OptionSet options = parser.parse(args);
+        if (options.nonOptionArguments().size() != 1) {
+            System.err.println("Usage: TrackGenerator [--width n] [--height n] [--corridor-width n] [--curvature c] [--seed s] <output file>");
+            System.exit(1);
+        }
+
+        TrackGenerator generator = new TrackGenerator((Long) options.valueOf("seed"))
+                .withCorridorWidth((Integer) options.valueOf("corridor-width"))
+                .withCurvature((Double) options.valueOf("curvature"));
+        try (Writer out = Files.newBufferedWriter(Paths.get(options.nonOptionArguments().get(0).toString()), StandardCharsets.US_ASCII)) {
+            generator.write((Integer) options.valueOf("width"), (Integer) options.valueOf("height"), out);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.ai.alg;
+
+import com.ai.Racetrack;
+import com.ai.RandomSource;
+import com.ai.model.Action;
+import com.ai.sim.CollisionModel;
+
+/**
+ * Implementation of in-place (Gauss-Seidel) value iteration.
+ *
+ * Like value iteration, every round updates all of the utilities once, but each update is written back
+ * immediately, so later updates in the same round already see it. This usually needs fewer rounds
+ * to converge than updating all of the utilities at once.
+ */
+public class GaussSeidelValueIteration extends UtilityLearner {
+    private boolean finished = false;
+
+    /**
+     * Make a new Gauss-Seidel value-iteration learner.
+     *
+     * @param racetrack the racetrack to learn
+     * @param collisionModel the collision model to use
+     */
+    public GaussSeidelValueIteration(Racetrack racetrack, CollisionModel collisionModel) {
+        this(racetrack, collisionModel, UtilityInitializer.RANDOM);
+    }
+
+    /**
+     * Make a new Gauss-Seidel value-iteration learner.
+     *
+     * @param racetrack the racetrack to learn
+     * @param collisionModel the collision model to use
+     * @param initializer how to choose the starting utilities
+     */
+    public GaussSeidelValueIteration(Racetrack racetrack, CollisionModel collisionModel, UtilityInitializer initializer) {
+        this(racetrack, collisionModel, initializer, RandomSource.threadLocal());
+    }
+
+    /**
+     * Make a new Gauss-Seidel value-iteration learner.
+     *
+     * @param racetrack the racetrack to learn
+     * @param collisionModel the collision model to use
+     * @param initializer how to choose the starting utilities
+     * @param random the random source to draw from
+     */
+    public GaussSeidelValueIteration(Racetrack racetrack, CollisionModel collisionModel, UtilityInitializer initializer, RandomSource random) {
+        super(racetrack, collisionModel, initializer, random);
+    }
+
+    @Override
+    public String toString() {
+        return "Gauss-Seidel value iteration";
+    }
+
+    /**
+     * Performs one "round" of value iteration in which all of the utilities are updated in place once.
+     */
+    @Override
+    public void next() {
+        if (finished) {
+            return;
+        }
+
+        double maxDelta = 0;
+        for (int id = 0; id < utility.length; id++) {
+            double nextUtility = backup(id);
+            maxDelta = Math.max(maxDelta, Math.abs(nextUtility - utility[id]));
+            utility[id] = nextUtility;
+        }
+        iterationCount += utility.length * Action.COUNT; //count all of the expected utilities calculated
+
+        finished = maxDelta < CONVERGENCE_THRESHOLD;
+    }
+
+    @Override
+    public boolean finished() {
+        return finished;
+    }
+}
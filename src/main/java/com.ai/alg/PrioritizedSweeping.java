@@ -0,0 +1,127 @@
+package com.ai.alg;
+
+import com.ai.Racetrack;
+import com.ai.RandomSource;
+import com.ai.io.LearnerSnapshot;
+import com.ai.model.Action;
+import com.ai.sim.CollisionModel;
+import com.ai.sim.PredecessorIndex;
+
+/**
+ * Implementation of prioritized sweeping over the known racetrack MDP.
+ *
+ * Rather than updating every utility each round, states are backed up in order of how much their utility
+ * may still change. A state's priority starts as its Bellman residual; whenever a state's utility changes,
+ * each of its predecessors gains priority GAMMA * P(state | predecessor) * |change|, which bounds how much
+ * that change can move the predecessor's residual.
+ *
+ * Once every priority is below the convergence threshold, so is every Bellman residual.
+ */
+public class PrioritizedSweeping extends UtilityLearner {
+    private final PredecessorIndex predecessors;
+    private final StatePriorityQueue queue;
+
+    private boolean finished = false;
+
+    /**
+     * Make a new prioritized sweeping learner.
+     *
+     * @param racetrack the racetrack to learn
+     * @param collisionModel the collision model to use
+     */
+    public PrioritizedSweeping(Racetrack racetrack, CollisionModel collisionModel) {
+        this(racetrack, collisionModel, UtilityInitializer.RANDOM);
+    }
+
+    /**
+     * Make a new prioritized sweeping learner.
+     *
+     * @param racetrack the racetrack to learn
+     * @param collisionModel the collision model to use
+     * @param initializer how to choose the starting utilities
+     */
+    public PrioritizedSweeping(Racetrack racetrack, CollisionModel collisionModel, UtilityInitializer initializer) {
+        this(racetrack, collisionModel, initializer, RandomSource.threadLocal());
+    }
+
+    /**
+     * Make a new prioritized sweeping learner.
+     *
+     * @param racetrack the racetrack to learn
+     * @param collisionModel the collision model to use
+     * @param initializer how to choose the starting utilities
+     * @param random the random source to draw from
+     */
+    public PrioritizedSweeping(Racetrack racetrack, CollisionModel collisionModel, UtilityInitializer initializer, RandomSource random) {
+        super(racetrack, collisionModel, initializer, random);
+
+        predecessors = new PredecessorIndex(transitions);
+        queue = new StatePriorityQueue(transitions.size());
+
+        prioritize();
+        iterationCount += utility.length * Action.COUNT;
+    }
+
+    /**
+     * Prioritizes every state by its Bellman residual against the current utilities.
+     */
+    private void prioritize() {
+        while (!queue.isEmpty()) {
+            queue.poll();
+        }
+        for (int id = 0; id < utility.length; id++) {
+            double residual = Math.abs(backup(id) - utility[id]);
+            if (residual >= CONVERGENCE_THRESHOLD) {
+                queue.add(id, residual);
+            }
+        }
+        finished = queue.isEmpty();
+    }
+
+    /**
+     * Restores the utilities, then reprioritizes every state against them since the priorities
+     * aren't part of the snapshot.
+     */
+    @Override
+    protected void restoreTables(LearnerSnapshot snapshot) {
+        super.restoreTables(snapshot);
+        prioritize();
+    }
+
+    @Override
+    public String toString() {
+        return "Prioritized sweeping";
+    }
+
+    /**
+     * Performs as many backups as one round of value iteration would, taking the states with
+     * the highest priority first.
+     */
+    @Override
+    public void next() {
+        if (finished) {
+            return;
+        }
+
+        int backups = 0;
+        while (backups < utility.length && queue.maxPriority() >= CONVERGENCE_THRESHOLD) {
+            int id = queue.poll();
+            double nextUtility = backup(id);
+            double delta = Math.abs(nextUtility - utility[id]);
+            utility[id] = nextUtility;
+            backups++;
+
+            for (int entry = predecessors.start(id); entry < predecessors.end(id); entry++) {
+                queue.add(predecessors.predecessor(entry), GAMMA * predecessors.weight(entry) * delta);
+            }
+        }
+        iterationCount += backups * Action.COUNT; //count all of the expected utilities calculated
+
+        finished = queue.maxPriority() < CONVERGENCE_THRESHOLD;
+    }
+
+    @Override
+    public boolean finished() {
+        return finished;
+    }
+}
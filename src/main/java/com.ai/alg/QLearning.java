@@ -2,40 +2,50 @@ package com.ai.alg;
 
 import com.ai.Policy;
 import com.ai.Racetrack;
+import com.ai.RandomSource;
+import com.ai.io.LearnerSnapshot;
+import com.ai.metrics.Counter;
+import com.ai.metrics.Instrumentation;
 import com.ai.model.Action;
-import com.ai.model.Position;
 import com.ai.model.State;
-import com.ai.model.Velocity;
 import com.ai.sim.CollisionModel;
 import com.ai.sim.MDPActionSimulator;
-import com.ai.sim.RacetrackMDP;
+import com.ai.sim.CompiledRacetrackMDP;
+import com.ai.sim.TransitionTable;
 import org.apache.log4j.Logger;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 public class QLearning extends RacetrackLearner {
     private static final double LEARNING_RATE = .7;
     private static final double DISCOUNT_FACTOR = .8;
     private static int ITERATION_LIMIT;
     private static final double TIMES_TO_VISIT = 10D;
+    private static final Counter Q_UPDATES = Instrumentation.counter("qlearning.qUpdates");
     private static final Logger logger = Logger.getLogger(QLearning.class);
     public int iterationCount = 0;
 
-    private Map<State, Map<Action, Double>> qTable = new HashMap<>();
-    private Map<State, Integer> timesVisited = new HashMap<>();
+    private QTable qTable;
     MDPActionSimulator mdpActionSimulator;
+    TransitionTable transitions;
     QLearningPolicy policy;
 
     public QLearning(Racetrack racetrack, CollisionModel collisionModel) {
-        super(racetrack, collisionModel);
+        this(racetrack, collisionModel, RandomSource.threadLocal());
+    }
+
+    public QLearning(Racetrack racetrack, CollisionModel collisionModel, RandomSource random) {
+        super(racetrack, collisionModel, random);
 
-        mdpActionSimulator = new MDPActionSimulator(new RacetrackMDP(racetrack, collisionModel));
+        CompiledRacetrackMDP mdp = CompiledRacetrackMDP.forTrack(racetrack, collisionModel);
+        mdpActionSimulator = new MDPActionSimulator(mdp);
+        transitions = mdp.getTransitionTable();
+        qTable = new QTable(transitions.size());
         policy = new QLearningPolicy();
 
-        ITERATION_LIMIT = racetrack.getWidth()*racetrack.getHeight()*121*9*2;
+        //in long, since the product overflows an int on racetracks from about 993x993
+        ITERATION_LIMIT = (int) Math.min((long) racetrack.getWidth()*racetrack.getHeight()*121*9*2, Integer.MAX_VALUE);
     }
 
     @Override
@@ -46,85 +56,99 @@ public class QLearning extends RacetrackLearner {
     private class QLearningPolicy implements Policy {
         /**
          * Returns an action based on a given state, using epsilon greedy
+         * with the learner's random source
          *
          * @param state the state to act within
          * @return the action to take in the given state
          */
         @Override
         public Action getAction(State state) {
-            // get epsilon
-            if (!timesVisited.containsKey(state)) {
-                timesVisited.put(state, 1);
-            }
+            return getAction(state, random);
+        }
 
-            if (Math.random() > timesVisited.get(state)/TIMES_TO_VISIT) {
-                return getRandomAction();
-            }
+        /**
+         * Returns an action based on a given state, using epsilon greedy
+         *
+         * @param state the state to act within
+         * @param random the random source to draw from
+         * @return the action to take in the given state
+         */
+        @Override
+        public Action getAction(State state, RandomSource random) {
+            return Action.fromIndex(chooseAction(transitions.id(state), random));
+        }
+
+        @Override
+        public int actionIndex(int x, int y, int vx, int vy) {
+            return actionIndex(x, y, vx, vy, random);
+        }
 
-            double bestCost = Double.MAX_VALUE;
-            Action argMax = null;
-            if (!qTable.containsKey(state)) {
-                qTable.put(state, new HashMap<>());
+        @Override
+        public int actionIndex(int x, int y, int vx, int vy, RandomSource random) {
+            return chooseAction(transitions.id(x, y, vx, vy), random);
+        }
+
+        /**
+         * Returns the index of an action based on a given state, using epsilon greedy
+         *
+         * @param id the id of the state to act within, or -1 for an unknown state
+         * @param random the random source to draw from
+         * @return the index of the action to take in the given state
+         */
+        private int chooseAction(int id, RandomSource random) {
+            if (id == -1) {
+                return getRandomActionIndex(random);
             }
-            Map<Action, Double> actions = qTable.get(state);
-            for(Action action : actions.keySet()) {
-                if(actions.get(action) < bestCost) {
-                    argMax = action;
-                    bestCost = actions.get(action);
-                }
+
+            // get epsilon, counting unvisited states as visited once. This only reads the table, since policy
+            // testers call it from many threads at once
+            int timesVisited = Math.max(qTable.getTimesVisited(id), 1);
+
+            if (random.nextDouble() > timesVisited/TIMES_TO_VISIT) {
+                return getRandomActionIndex(random);
             }
 
-            if (argMax == null) {
-                argMax = getRandomAction();
+            int argMax = qTable.argMin(id);
+            if (argMax == -1) {
+                return getRandomActionIndex(random);
             }
 
-            //logger.info("Policy... State: " + state + " Action:" +argMax + " "+ qTable.get(state).get(argMax));
+            //logger.info("Policy... State: " + id + " Action:" +argMax + " "+ qTable.getOrDefault(id, argMax, 0));
 
             return argMax;
         }
         /**
-         * Returns a random valid action
+         * Returns the index of a random valid action
          *
-         * @return The randomly chosen action to take
+         * @param random the random source to draw from
+         * @return The index of the randomly chosen action to take
          */
-        public Action getRandomAction() {
-            return new Action(-1+ (int)(Math.random()*3), -1+ (int)(Math.random()*3));
+        public int getRandomActionIndex(RandomSource random) {
+            return random.nextInt(3)*3 + random.nextInt(3);
         }
     }
 
     @Override
     public void next() {
-        Position curPos;
-        Velocity curVel;
         State currentState;
-        Action currentAction = policy.getRandomAction();
+        Action currentAction = Action.fromIndex(policy.getRandomActionIndex(random));
         List<Action> actions;
         List<State> states;
-        int xPos;
-        int yPos;
-        do {
-            xPos = (int) (Math.random() * racetrack.getWidth());
-            yPos = (int) (Math.random() * racetrack.getHeight());
-            curPos = new Position(xPos, yPos);
-        } while (!racetrack.isSafe(curPos) || racetrack.finishLine().contains(curPos));
-
-        int xVel = -5 + (int)(Math.random()*12);
-        int yVel = -5 + (int)(Math.random()*12);
+        //start from a random state that can be reached from the starting line
+        int start = random.nextInt(transitions.size());
 
         dowhile:
         do {
             states = new ArrayList<>();
             actions = new ArrayList<>();
 
-            curPos = new Position(xPos, yPos);
-            curVel = new Velocity(xVel, yVel);
-            currentState = new State(curPos, curVel);
+            currentState = transitions.state(start);
 
             for (int i = 0; i<ITERATION_LIMIT; i++) {
                 states.add(currentState);
                 actions.add(currentAction);
-                currentAction = policy.getAction(currentState);
-                currentState = mdpActionSimulator.getNextState(currentState, currentAction);
+                currentAction = policy.getAction(currentState, random);
+                currentState = mdpActionSimulator.getNextState(currentState, currentAction, random);
                 if (currentState == null) {
                     logger.info("QLearning reached the finish line...");
                     break dowhile;
@@ -137,22 +161,18 @@ public class QLearning extends RacetrackLearner {
 
 
         for (int i = 0; i < states.size(); i++) {
-            State state = states.get(i);
-            Action action = actions.get(i);
+            int state = transitions.id(states.get(i));
+            int action = actions.get(i).index();
             double nextStateActionUtility = currentState == null ? 0 : -1000;
 
             if (i < states.size() - 1) {
-                State nextState = states.get(i + 1);
-                Action nextAction = actions.get(i + 1);
-                if (!qTable.containsKey(nextState)) {
-                    qTable.put(nextState, new HashMap<>());
+                int nextState = transitions.id(states.get(i + 1));
+                int nextAction = actions.get(i + 1).index();
+                if (!qTable.contains(nextState, nextAction)) {
+                    qTable.put(nextState, nextAction, random.nextDouble());
                 }
 
-                if (!qTable.get(nextState).containsKey(nextAction)) {
-                    qTable.get(nextState).put(nextAction, Math.random());
-                }
-
-                nextStateActionUtility = qTable.get(nextState).get(nextAction);
+                nextStateActionUtility = qTable.getOrDefault(nextState, nextAction, 0);
             }
 
             int reward = -1;
@@ -161,21 +181,15 @@ public class QLearning extends RacetrackLearner {
                 reward = 0;
             }
 
-            if (!qTable.containsKey(state)) {
-                qTable.put(state, new HashMap<>());
+            if (!qTable.contains(state, action)) {
+                qTable.put(state, action, random.nextDouble());
             }
 
-            if (!qTable.get(state).containsKey(action)) {
-                qTable.get(state).put(action, Math.random());
-            }
-
-            //logger.info("Next... State: " + state + " Action:" +action +" " + qTable.get(state).get(action));
-            qTable.get(state).put(action, (state!=null? qTable.get(state).get(action): 1) + (LEARNING_RATE * (reward + (DISCOUNT_FACTOR * nextStateActionUtility) - (state!=null ? qTable.get(state).get(action) : 0))));
-
-            if (!timesVisited.containsKey(state)){
-                timesVisited.put(state, timesVisited.get(state)+1);
-            }
+            //logger.info("Next... State: " + state + " Action:" +action +" " + qTable.getOrDefault(state, action, 0));
+            double stateActionUtility = qTable.getOrDefault(state, action, 0);
+            qTable.put(state, action, stateActionUtility + (LEARNING_RATE * (reward + (DISCOUNT_FACTOR * nextStateActionUtility) - stateActionUtility)));
         }
+        Q_UPDATES.add(states.size());
         iterationCount += states.size();
     }
 
@@ -184,6 +198,21 @@ public class QLearning extends RacetrackLearner {
         return iterationCount;
     }
 
+    @Override
+    public LearnerSnapshot snapshot() {
+        return new LearnerSnapshot(racetrack, collisionModel, toString(), iterationCount, transitions, qTable.bestActions())
+                .withHyperparameter("learning rate", LEARNING_RATE)
+                .withHyperparameter("discount factor", DISCOUNT_FACTOR)
+                .withHyperparameter("times to visit", TIMES_TO_VISIT)
+                .withQValues(qTable.getValues(), qTable.getTimesVisited());
+    }
+
+    @Override
+    protected void restoreTables(LearnerSnapshot snapshot) {
+        qTable.restore(snapshot);
+        iterationCount = snapshot.getIterationCount();
+    }
+
     @Override
     public boolean finished() {
         return iterationCount >= ITERATION_LIMIT;
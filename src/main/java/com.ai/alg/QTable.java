@@ -0,0 +1,133 @@
+package com.ai.alg;
+
+import com.ai.io.LearnerSnapshot;
+import com.ai.model.Action;
+
+import java.util.Arrays;
+
+/**
+ * A dense table of Q-values and visit counts for the tabular learners, indexed by the compact state ids
+ * of a transition table.
+ *
+ * The Q-value of action `a` in state `id` is stored at `id * Action.COUNT + a`. Entries that have not been
+ * written yet hold NaN, so the learners can keep treating them as missing and fall back to their defaults.
+ */
+class QTable {
+    private final float[] values;
+    private final int[] timesVisited;
+
+    /**
+     * Make an empty table for states with ids from 0 to `size - 1`.
+     *
+     * @param size the number of states
+     */
+    QTable(int size) {
+        values = new float[size * Action.COUNT];
+        timesVisited = new int[size];
+        Arrays.fill(values, Float.NaN);
+    }
+
+    /**
+     * Determines whether a Q-value has been written for the given state and action.
+     *
+     * @param id the id of the state
+     * @param action the index of the action
+     * @return whether the Q-value is present
+     */
+    boolean contains(int id, int action) {
+        return !Float.isNaN(values[id * Action.COUNT + action]);
+    }
+
+    /**
+     * Determines whether any Q-values have been written for the given state.
+     *
+     * @param id the id of the state
+     * @return whether the state has a Q-value for any action
+     */
+    boolean containsState(int id) {
+        return argMin(id) != -1;
+    }
+
+    /**
+     * Gives the Q-value of the given state and action, or a default if it hasn't been written.
+     *
+     * @param id the id of the state
+     * @param action the index of the action
+     * @param defaultValue the value to give if the Q-value is missing
+     * @return the Q-value
+     */
+    double getOrDefault(int id, int action, double defaultValue) {
+        float value = values[id * Action.COUNT + action];
+        return Float.isNaN(value) ? defaultValue : value;
+    }
+
+    void put(int id, int action, double value) {
+        values[id * Action.COUNT + action] = (float)value;
+    }
+
+    /**
+     * Gives the action with the lowest Q-value of those written for the given state.
+     *
+     * @param id the id of the state
+     * @return the index of the action, or -1 if no Q-values have been written for the state
+     */
+    int argMin(int id) {
+        int argMin = -1;
+        float bestCost = Float.MAX_VALUE;
+        for (int action = 0, entry = id * Action.COUNT; action < Action.COUNT; action++, entry++) {
+            //NaN compares false, so missing entries are skipped
+            if (values[entry] < bestCost) {
+                argMin = action;
+                bestCost = values[entry];
+            }
+        }
+        return argMin;
+    }
+
+    /**
+     * Gives the action with the lowest Q-value in every state.
+     *
+     * @return the index of the best action for each id, or -1 for states with no Q-values
+     */
+    byte[] bestActions() {
+        byte[] bestActions = new byte[timesVisited.length];
+        for (int id = 0; id < bestActions.length; id++) {
+            bestActions[id] = (byte)argMin(id);
+        }
+        return bestActions;
+    }
+
+    float[] getValues() {
+        return values;
+    }
+
+    int[] getTimesVisited() {
+        return timesVisited;
+    }
+
+    /**
+     * Replaces the Q-values and visit counts with those of the given snapshot.
+     *
+     * @param snapshot the snapshot to restore from
+     */
+    void restore(LearnerSnapshot snapshot) {
+        if (!snapshot.hasQValues() || snapshot.size() != timesVisited.length) {
+            throw new IllegalArgumentException("The snapshot " + snapshot + " has no Q-values for " + timesVisited.length + " states");
+        }
+
+        for (int id = 0; id < timesVisited.length; id++) {
+            for (int action = 0; action < Action.COUNT; action++) {
+                values[id * Action.COUNT + action] = snapshot.qValue(id, action);
+            }
+            timesVisited[id] = snapshot.timesVisited(id);
+        }
+    }
+
+    int getTimesVisited(int id) {
+        return timesVisited[id];
+    }
+
+    void setTimesVisited(int id, int times) {
+        timesVisited[id] = times;
+    }
+}
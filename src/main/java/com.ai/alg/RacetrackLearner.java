@@ -2,6 +2,8 @@ package com.ai.alg;
 
 import com.ai.Policy;
 import com.ai.Racetrack;
+import com.ai.RandomSource;
+import com.ai.io.LearnerSnapshot;
 import com.ai.sim.CollisionModel;
 
 /**
@@ -10,15 +12,25 @@ import com.ai.sim.CollisionModel;
  * Allows learners to be ran iteratively.
  * After calling `next`, calling `getPolicy` and `getIterationCount` will indicate the learner's current policy
  * and how many iterations have been performed respectively. `finished` allows for a learner to indicate
- * when they are done learning.
+ * when they are done learning. `snapshot` copies what the learner has learned so far, so it can be saved.
+ * `checkpoint` and `restore` let a learner that was stopped part way through pick up where it left off.
+ *
+ * Learners make all of their random choices with their random source, so a learner with a seeded source
+ * learns the same way every time.
  */
 public abstract class RacetrackLearner {
     protected Racetrack racetrack;
     protected CollisionModel collisionModel;
+    protected RandomSource random;
 
     public RacetrackLearner(Racetrack racetrack, CollisionModel collisionModel) {
+        this(racetrack, collisionModel, RandomSource.threadLocal());
+    }
+
+    public RacetrackLearner(Racetrack racetrack, CollisionModel collisionModel, RandomSource random) {
         this.racetrack = racetrack;
         this.collisionModel = collisionModel;
+        this.random = random;
     }
 
     public abstract void next();    
@@ -26,4 +38,46 @@ public abstract class RacetrackLearner {
 
     public abstract Policy getPolicy();
     public abstract int getIterationCount();
+    public abstract LearnerSnapshot snapshot();
+
+    /**
+     * Copies the learner's tables into a snapshot to resume from later.
+     *
+     * The state of a seeded learner's random source is kept with the snapshot, so a learner restored from
+     * the snapshot makes the same random choices this one goes on to make. Taking the checkpoint doesn't
+     * draw from the source, so a checkpointed run makes the same choices as one that never checkpoints.
+     *
+     * @return the snapshot of the learner
+     */
+    public LearnerSnapshot checkpoint() {
+        long[] randomState = random.getState();
+        LearnerSnapshot snapshot = snapshot();
+        return randomState == null ? snapshot : snapshot.withRandomState(randomState);
+    }
+
+    /**
+     * Picks up learning from a snapshot of the same kind of learner, on the same racetrack and collision model.
+     *
+     * @param snapshot the snapshot to resume from
+     */
+    public void restore(LearnerSnapshot snapshot) {
+        if (snapshot.getTrackHash() != racetrack.getContentHash() ||
+            !snapshot.getCollisionModel().equals(collisionModel.toString()) ||
+            !snapshot.getLearner().equals(toString())) {
+            throw new IllegalArgumentException("Cannot resume " + this + " on " + racetrack + " using " + collisionModel + " from " + snapshot);
+        }
+
+        restoreTables(snapshot);
+        if (snapshot.hasRandomState()) {
+            random = RandomSource.restore(snapshot.getRandomState());
+        }
+    }
+
+    /**
+     * Replaces the learner's tables and iteration count with those of the given snapshot, which has
+     * already been checked to come from the same kind of learner.
+     *
+     * @param snapshot the snapshot to restore from
+     */
+    protected abstract void restoreTables(LearnerSnapshot snapshot);
 }
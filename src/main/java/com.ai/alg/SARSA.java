@@ -3,19 +3,20 @@ package com.ai.alg;
 import com.ai.Main;
 import com.ai.Policy;
 import com.ai.Racetrack;
+import com.ai.RandomSource;
+import com.ai.io.LearnerSnapshot;
+import com.ai.metrics.Counter;
+import com.ai.metrics.Instrumentation;
 import com.ai.model.Action;
-import com.ai.model.Position;
 import com.ai.model.State;
-import com.ai.model.Velocity;
 import com.ai.sim.CollisionModel;
 import com.ai.sim.MDPActionSimulator;
-import com.ai.sim.RacetrackMDP;
+import com.ai.sim.CompiledRacetrackMDP;
+import com.ai.sim.TransitionTable;
 import org.apache.log4j.Logger;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 /**
  * Implementation of the SARSA algorithm using an off-line training algorithm.
@@ -25,61 +26,100 @@ public class SARSA extends RacetrackLearner {
     private static final double GAMMA = 0.2;
     private static final int TIMES_TO_VISIT = 30;
 
+    private static final Counter Q_UPDATES = Instrumentation.counter("sarsa.qUpdates");
     private static final Logger logger = Logger.getLogger(Main.class);
 
     private int iterationCount = 0;
-    private Map<State, Map<Action, Double>> qTable = new HashMap<>();
-    private Map<State, Integer> timesVisited = new HashMap<>();
+    private QTable qTable;
     private MDPActionSimulator aSim;
-    private Policy policy;
+    private TransitionTable transitions;
+    private SARSAPolicy policy;
     private int iterationLimit = Integer.MAX_VALUE;
 
     public SARSA(Racetrack racetrack, CollisionModel collisionModel) {
-        super(racetrack, collisionModel);
+        this(racetrack, collisionModel, RandomSource.threadLocal());
+    }
+
+    public SARSA(Racetrack racetrack, CollisionModel collisionModel, RandomSource random) {
+        super(racetrack, collisionModel, random);
 
-        aSim = new MDPActionSimulator(new RacetrackMDP(racetrack, collisionModel));
+        CompiledRacetrackMDP mdp = CompiledRacetrackMDP.forTrack(racetrack, collisionModel);
+        aSim = new MDPActionSimulator(mdp);
+        transitions = mdp.getTransitionTable();
+        qTable = new QTable(transitions.size());
         policy = new SARSAPolicy();
 
-        iterationLimit = racetrack.getWidth()*racetrack.getHeight()*121*9*2;
+        //in long, since the product overflows an int on racetracks from about 993x993
+        iterationLimit = (int) Math.min((long) racetrack.getWidth()*racetrack.getHeight()*121*9*2, Integer.MAX_VALUE);
     }
 
     class SARSAPolicy implements Policy {
         /**
          * Returns an action based on a given state, using epsilon greedy
+         * with the learner's random source
          *
          * @param state the state to act within
          * @return the action to take in the given state
          */
         @Override
         public Action getAction(State state) {
-            // get epsilon
-            if (Math.random() > (double)timesVisited.getOrDefault(state,0)/TIMES_TO_VISIT) {
-                return getRandomAction();
+            return getAction(state, random);
+        }
+
+        /**
+         * Returns an action based on a given state, using epsilon greedy
+         *
+         * @param state the state to act within
+         * @param random the random source to draw from
+         * @return the action to take in the given state
+         */
+        @Override
+        public Action getAction(State state, RandomSource random) {
+            return Action.fromIndex(chooseAction(transitions.id(state), random));
+        }
+
+        @Override
+        public int actionIndex(int x, int y, int vx, int vy) {
+            return actionIndex(x, y, vx, vy, random);
+        }
+
+        @Override
+        public int actionIndex(int x, int y, int vx, int vy, RandomSource random) {
+            return chooseAction(transitions.id(x, y, vx, vy), random);
+        }
+
+        /**
+         * Returns the index of an action based on a given state, using epsilon greedy
+         *
+         * @param id the id of the state to act within, or -1 for an unknown state
+         * @param random the random source to draw from
+         * @return the index of the action to take in the given state
+         */
+        private int chooseAction(int id, RandomSource random) {
+            if (id == -1) {
+                return getRandomActionIndex(random);
             }
 
-            double bestCost = Double.MAX_VALUE;
-            Action argMax = null;
-            Map<Action, Double> actions = qTable.getOrDefault(state, new HashMap<>());
-            for(Action action : actions.keySet()) {
-                if(actions.get(action) < bestCost) {
-                    argMax = action;
-                    bestCost = actions.get(action);
-                }
+            // get epsilon
+            if (random.nextDouble() > (double)qTable.getTimesVisited(id)/TIMES_TO_VISIT) {
+                return getRandomActionIndex(random);
             }
 
-            if (argMax == null) {
-                return getRandomAction();
+            int argMax = qTable.argMin(id);
+            if (argMax == -1) {
+                return getRandomActionIndex(random);
             }
 
             return argMax;
         }
         /**
-         * Returns a random valid action
+         * Returns the index of a random valid action
          *
-         * @return The randomly chosen action to take
+         * @param random the random source to draw from
+         * @return The index of the randomly chosen action to take
          */
-        public Action getRandomAction() {
-            return new Action((int)(Math.random()*3)-1, (int)(Math.random()*3)-1);
+        public int getRandomActionIndex(RandomSource random) {
+            return random.nextInt(3)*3 + random.nextInt(3);
         }
     }
     
@@ -89,41 +129,29 @@ public class SARSA extends RacetrackLearner {
      */
     @Override
     public void next() {
-        int xPos, yPos, xVel, yVel;
-        Position curPos;
-        Velocity curVel;
         State curState;
         Action curAction;
         List<Action> actions = new ArrayList<>();
         List<State> states = new ArrayList<>();
 
-        //determine random starting location and velocity
-        do {
-            xPos = (int)(Math.random()*racetrack.getWidth());
-            yPos = (int)(Math.random()*racetrack.getHeight());
-            curPos = new Position(xPos, yPos);
-
-            logger.debug("SARSA finding starting position: " + xPos + "," + yPos);
-        } while(!racetrack.isSafe(curPos) || racetrack.finishLine().contains(curPos));
+        //determine random starting location and velocity, from the states that can be reached
+        int start = random.nextInt(transitions.size());
+        logger.debug("SARSA starting from: " + transitions.x(start) + "," + transitions.y(start));
 
-        xVel = (int)(Math.random()*12)-5;
-        yVel = (int)(Math.random()*12)-5;
         do {
             states.clear();
             actions.clear();
 
-            curPos = new Position(xPos, yPos);
-            curVel = new Velocity(xVel, yVel);
-            curState = new State(curPos, curVel);
+            curState = transitions.state(start);
 
             //while we have not crossed the finish or reached our iteration limit
             for (int i = 0; curState != null && i<iterationLimit; i++) {
                 //get next action
-                curAction = policy.getAction(curState);
+                curAction = policy.getAction(curState, random);
                 actions.add(curAction);
 
                 states.add(curState);
-                curState = aSim.getNextState(curState, curAction);
+                curState = aSim.getNextState(curState, curAction, random);
             }
 
             if (curState != null) {
@@ -132,20 +160,26 @@ public class SARSA extends RacetrackLearner {
         } while (curState != null);
 
         for (int i = 0; i < states.size(); i++) {
-            State state = states.get(i);
-            Action action = actions.get(i);
+            int state = transitions.id(states.get(i));
+            int action = actions.get(i).index();
             double nextStateActionUtility = 0;
 
             if (i < states.size() - 1) {
-                State nextState = states.get(i + 1);
-                Action nextAction = actions.get(i + 1);
-                nextStateActionUtility = qTable.getOrDefault(nextState, new HashMap<>()).getOrDefault(nextAction, Math.random());
+                int nextState = transitions.id(states.get(i + 1));
+                int nextAction = actions.get(i + 1).index();
+                nextStateActionUtility = qTable.getOrDefault(nextState, nextAction, random.nextDouble());
             }
 
-            qTable.getOrDefault(state, new HashMap<>()).put(action, ((1 - LEARNING_RATE) * qTable.getOrDefault(state, new HashMap<>()).getOrDefault(action, 1.0) +
-                                                                     LEARNING_RATE * (1 + GAMMA * nextStateActionUtility)));
-            timesVisited.put(state, timesVisited.getOrDefault(state, 0) + 1);
+            //only states that already have Q-values are updated, as with the map-based table this replaced
+            //(which never gave a state its first entry); keeping every update makes the greedy policy loop
+            double stateActionUtility = (1 - LEARNING_RATE) * qTable.getOrDefault(state, action, 1.0) +
+                                        LEARNING_RATE * (1 + GAMMA * nextStateActionUtility);
+            if (qTable.containsState(state)) {
+                qTable.put(state, action, stateActionUtility);
+            }
+            qTable.setTimesVisited(state, qTable.getTimesVisited(state) + 1);
         }
+        Q_UPDATES.add(states.size());
         iterationCount += states.size();
     }
 
@@ -168,4 +202,19 @@ public class SARSA extends RacetrackLearner {
     public int getIterationCount() {
         return iterationCount;
     }
+
+    @Override
+    public LearnerSnapshot snapshot() {
+        return new LearnerSnapshot(racetrack, collisionModel, toString(), iterationCount, transitions, qTable.bestActions())
+                .withHyperparameter("learning rate", LEARNING_RATE)
+                .withHyperparameter("gamma", GAMMA)
+                .withHyperparameter("times to visit", TIMES_TO_VISIT)
+                .withQValues(qTable.getValues(), qTable.getTimesVisited());
+    }
+
+    @Override
+    protected void restoreTables(LearnerSnapshot snapshot) {
+        qTable.restore(snapshot);
+        iterationCount = snapshot.getIterationCount();
+    }
 }
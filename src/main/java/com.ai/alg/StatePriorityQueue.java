@@ -0,0 +1,110 @@
+package com.ai.alg;
+
+import java.util.Arrays;
+
+/**
+ * An indexed max-heap of state ids, keyed by a priority per state.
+ *
+ * Each state is in the queue at most once; adding priority to a state already in the queue raises it in place.
+ */
+class StatePriorityQueue {
+    private final int[] heap;
+    private final int[] position;
+    private final double[] priority;
+    private int size = 0;
+
+    /**
+     * Make an empty queue for states with ids from 0 to `capacity - 1`.
+     *
+     * @param capacity the number of states
+     */
+    StatePriorityQueue(int capacity) {
+        heap = new int[capacity];
+        position = new int[capacity];
+        priority = new double[capacity];
+        Arrays.fill(position, -1);
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Gives the highest priority in the queue.
+     *
+     * @return the highest priority, or 0 if the queue is empty
+     */
+    double maxPriority() {
+        return size == 0 ? 0 : priority[heap[0]];
+    }
+
+    /**
+     * Adds to the priority of a state, inserting it if it is not already queued.
+     *
+     * @param id the state to prioritize
+     * @param amount the (non-negative) amount to add to its priority
+     */
+    void add(int id, double amount) {
+        if (position[id] == -1) {
+            priority[id] = amount;
+            position[id] = size;
+            heap[size++] = id;
+        } else {
+            priority[id] += amount;
+        }
+        siftUp(position[id]);
+    }
+
+    /**
+     * Removes the state with the highest priority.
+     *
+     * @return the id of the removed state
+     */
+    int poll() {
+        int id = heap[0];
+        position[id] = -1;
+        size--;
+        if (size > 0) {
+            heap[0] = heap[size];
+            position[heap[0]] = 0;
+            siftDown(0);
+        }
+        return id;
+    }
+
+    private void siftUp(int index) {
+        int id = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (priority[heap[parent]] >= priority[id]) {
+                break;
+            }
+            heap[index] = heap[parent];
+            position[heap[index]] = index;
+            index = parent;
+        }
+        heap[index] = id;
+        position[id] = index;
+    }
+
+    private void siftDown(int index) {
+        int id = heap[index];
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && priority[heap[child + 1]] > priority[heap[child]]) {
+                child++;
+            }
+            if (priority[heap[child]] <= priority[id]) {
+                break;
+            }
+            heap[index] = heap[child];
+            position[heap[index]] = index;
+            index = child;
+        }
+        heap[index] = id;
+        position[id] = index;
+    }
+}
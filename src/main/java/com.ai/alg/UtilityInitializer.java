@@ -0,0 +1,43 @@
+package com.ai.alg;
+
+import com.ai.RandomSource;
+import com.ai.sim.DistanceToFinish;
+import com.ai.sim.PredecessorIndex;
+import com.ai.sim.TransitionTable;
+
+/**
+ * The ways the MDP-based learners can choose their starting utilities.
+ *
+ *   RANDOM             - Uniform(0, 1) random utilities
+ *   DISTANCE_TO_FINISH - the discounted utility of finishing in as few moves as possible, which is
+ *                        already close to the true utilities and so needs far fewer rounds to converge
+ */
+public enum UtilityInitializer {
+    RANDOM {
+        @Override
+        void initialize(TransitionTable transitions, double[] utility, double gamma, RandomSource random) {
+            for (int id = 0; id < utility.length; id++) {
+                utility[id] = random.nextDouble();
+            }
+        }
+    },
+    DISTANCE_TO_FINISH {
+        @Override
+        void initialize(TransitionTable transitions, double[] utility, double gamma, RandomSource random) {
+            DistanceToFinish distanceToFinish = new DistanceToFinish(transitions, new PredecessorIndex(transitions));
+            for (int id = 0; id < utility.length; id++) {
+                utility[id] = distanceToFinish.utility(id, gamma);
+            }
+        }
+    };
+
+    /**
+     * Sets the starting utility of every state.
+     *
+     * @param transitions the transitions the utilities are for
+     * @param utility the utilities to set, indexed by transition table id
+     * @param gamma the discount factor the utilities are for
+     * @param random the random source to draw from
+     */
+    abstract void initialize(TransitionTable transitions, double[] utility, double gamma, RandomSource random);
+}
@@ -0,0 +1,214 @@
+package com.ai.alg;
+
+import com.ai.Policy;
+import com.ai.Racetrack;
+import com.ai.RandomSource;
+import com.ai.io.LearnerSnapshot;
+import com.ai.model.Action;
+import com.ai.model.State;
+import com.ai.sim.CollisionModel;
+import com.ai.sim.CompiledRacetrackMDP;
+import com.ai.sim.TransitionTable;
+
+import java.util.Arrays;
+
+/**
+ * A template for the MDP-based learners, which plan over the compiled transitions of the racetrack MDP.
+ *
+ * Keeps a utility and a best action for every state the agent can occupy, indexed by transition table id,
+ * and provides the Bellman backup they are updated with:
+ * the utility for a given state is updated to be -1 + GAMMA * bestExpectedUtility(s, a) over all actions.
+ *
+ * Learners count every expected utility they calculate as an iteration, so one backup is `Action.COUNT` iterations.
+ */
+public abstract class UtilityLearner extends RacetrackLearner {
+    protected static final double GAMMA = 0.7;
+    protected static final double EPSILON = 0.0001;
+
+    /* The largest Bellman residual at which the utilities are considered converged */
+    protected static final double CONVERGENCE_THRESHOLD = EPSILON * (1 - GAMMA) / GAMMA;
+
+    protected final TransitionTable transitions;
+
+    protected double[] utility;
+    protected final byte[] bestActions;
+
+    protected int iterationCount = 0;
+    private final Policy policy = new UtilityPolicy();
+
+    /**
+     * Compiles the racetrack MDP and starts with Uniform(0, 1) random utilities.
+     *
+     * @param racetrack the racetrack to learn
+     * @param collisionModel the collision model to use
+     */
+    public UtilityLearner(Racetrack racetrack, CollisionModel collisionModel) {
+        this(racetrack, collisionModel, UtilityInitializer.RANDOM);
+    }
+
+    /**
+     * Compiles the racetrack MDP and starts with the utilities chosen by the given initializer.
+     *
+     * @param racetrack the racetrack to learn
+     * @param collisionModel the collision model to use
+     * @param initializer how to choose the starting utilities
+     */
+    public UtilityLearner(Racetrack racetrack, CollisionModel collisionModel, UtilityInitializer initializer) {
+        this(racetrack, collisionModel, initializer, RandomSource.threadLocal());
+    }
+
+    /**
+     * Compiles the racetrack MDP and starts with the utilities chosen by the given initializer.
+     *
+     * @param racetrack the racetrack to learn
+     * @param collisionModel the collision model to use
+     * @param initializer how to choose the starting utilities
+     * @param random the random source to draw from
+     */
+    public UtilityLearner(Racetrack racetrack, CollisionModel collisionModel, UtilityInitializer initializer, RandomSource random) {
+        super(racetrack, collisionModel, random);
+
+        transitions = CompiledRacetrackMDP.forTrack(racetrack, collisionModel).getTransitionTable();
+        utility = new double[transitions.size()];
+        bestActions = new byte[transitions.size()];
+        Arrays.fill(bestActions, (byte)-1);
+
+        initializer.initialize(transitions, utility, GAMMA, random);
+    }
+
+    /**
+     * Performs a Bellman backup of the given state against the current utilities, and sets the
+     * state's best action to the action which gave the best expected utility.
+     *
+     * The state's utility is not changed; the backed up utility is returned instead.
+     *
+     * @param id the id of the state to back up
+     * @return the backed up utility of the state
+     */
+    protected double backup(int id) {
+        //find the best expected utility over all of the actions
+        double bestExpectedUtility = Double.NEGATIVE_INFINITY;
+        int bestAction = -1;
+        for (int action = 0; action < Action.COUNT; action++) {
+            double expectedUtility = expectedUtility(id, action);
+
+            if (expectedUtility > bestExpectedUtility) {
+                bestExpectedUtility = expectedUtility;
+                bestAction = action;
+            }
+        }
+        //set the policy based on which action gave the best expected utility
+        bestActions[id] = (byte)bestAction;
+
+        return -1 + GAMMA * bestExpectedUtility;
+    }
+
+    /**
+     * Lookup the state's utility in the utility table.
+     *
+     * @param id the id of the state in the transition table
+     * @return the state's utility
+     */
+    private double getUtility(int id) {
+        //terminal states have utility 0
+        if (id == TransitionTable.TERMINAL) {
+            return 0.0;
+        }
+
+        return utility[id];
+    }
+
+    /**
+     * Compute the expected utility of performing a given action in a given state based on the
+     * transition model provided by the compiled MDP.
+     *
+     * @param id the id of the state in which the action is performed
+     * @param action the index of the action to consider
+     * @return the expected utility of the given state-action based on known utilities.
+     */
+    private double expectedUtility(int id, int action) {
+        double expectedUtility = 0;
+        int end = transitions.rowEnd(id, action);
+        for (int entry = transitions.rowStart(id, action); entry < end; entry++) {
+            expectedUtility += transitions.probability(entry) * getUtility(transitions.successor(entry));
+        }
+        return expectedUtility;
+    }
+
+    @Override
+    public Policy getPolicy() {
+        return policy;
+    }
+
+    @Override
+    public int getIterationCount() {
+        return iterationCount;
+    }
+
+    @Override
+    public LearnerSnapshot snapshot() {
+        return new LearnerSnapshot(racetrack, collisionModel, toString(), iterationCount, transitions, bestActions)
+                .withHyperparameter("gamma", GAMMA)
+                .withHyperparameter("epsilon", EPSILON)
+                .withUtilities(utility);
+    }
+
+    @Override
+    protected void restoreTables(LearnerSnapshot snapshot) {
+        if (!snapshot.hasUtilities() || snapshot.size() != transitions.size()) {
+            throw new IllegalArgumentException("The snapshot " + snapshot + " has no utilities for " + transitions.size() + " states");
+        }
+
+        for (int id = 0; id < utility.length; id++) {
+            utility[id] = snapshot.utility(id);
+            bestActions[id] = (byte)snapshot.bestAction(id);
+        }
+        iterationCount = snapshot.getIterationCount();
+    }
+
+    /**
+     * Gives the current utilities, indexed by transition table id.
+     *
+     * @return the utility table
+     */
+    double[] getUtilities() {
+        return utility;
+    }
+
+    /**
+     * Gives the current best actions, indexed by transition table id.
+     *
+     * @return the best action index for each state
+     */
+    byte[] getBestActions() {
+        return bestActions;
+    }
+
+    class UtilityPolicy implements Policy {
+        public Action getAction(State state) {
+            int id = transitions.id(state);
+            if (id == -1 || bestActions[id] == -1) {
+                return null;
+            }
+
+            //lookup the best action based on the pre-determined actions which gave the maximum expected utility
+            return Action.fromIndex(bestActions[id]);
+        }
+
+        @Override
+        public int actionIndex(int x, int y, int vx, int vy) {
+            int id = transitions.id(x, y, vx, vy);
+            return id == -1 ? -1 : bestActions[id];
+        }
+
+        @Override
+        public int actionIndex(int x, int y, int vx, int vy, RandomSource random) {
+            return actionIndex(x, y, vx, vy);
+        }
+
+        @Override
+        public boolean isDeterministic() {
+            return true;
+        }
+    }
+}
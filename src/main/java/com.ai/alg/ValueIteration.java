@@ -1,54 +1,84 @@
 package com.ai.alg;
 
-import com.ai.Policy;
 import com.ai.Racetrack;
+import com.ai.RandomSource;
 import com.ai.model.Action;
-import com.ai.model.Position;
-import com.ai.model.State;
-import com.ai.model.Velocity;
 import com.ai.sim.CollisionModel;
-import com.ai.sim.MDP;
-import com.ai.sim.PotentialState;
-import com.ai.sim.RacetrackMDP;
 import org.apache.log4j.Logger;
 
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
 /**
  * Implementation of the MDP-based learner, value-iteration.
  *
- * Starts with Uniform(0, 1) random utilities and iteratively all the utilities at once
- * based on the utilities from the previous time step.
+ * Starts with Uniform(0, 1) random utilities (or those of another initializer) and iteratively
+ * updates all the utilities at once based on the utilities from the previous time step.
  *
  * The utility for a given state is updated to be: -1 + GAMMA * bestExpectedUtility(s, a) over all actions
  */
-public class ValueIteration extends RacetrackLearner {
+public class ValueIteration extends UtilityLearner {
     private static final Logger logger = Logger.getLogger(ValueIteration.class);
 
-    private MDP mdp;
-
-    private double[][][][] utility;
-    private Action[][][][] bestActions;
+    //the two utility buffers are swapped after each sweep rather than reallocated
+    private double[] nextUtility;
 
+    private final boolean parallel;
     private boolean finished = false;
-    private int iterationCount = 0;
-    private Policy policy = new ValueIterationPolicy();
 
-    private static final double GAMMA = 0.7;
-    private static final double EPSILON = 0.0001;
+    //the number of states a single fork-join task sweeps before it stops splitting
+    private static final int SWEEP_CHUNK = 2048;
 
     /**
-     * Make a new value-iteration learner.
+     * Make a new value-iteration learner which sweeps on a single thread.
      *
      * @param racetrack the racetrack to learn
      * @param collisionModel the collision model to use
      */
     public ValueIteration(Racetrack racetrack, CollisionModel collisionModel) {
-        super(racetrack, collisionModel);
+        this(racetrack, collisionModel, false);
+    }
+
+    /**
+     * Make a new value-iteration learner which starts from random utilities.
+     *
+     * @param racetrack the racetrack to learn
+     * @param collisionModel the collision model to use
+     * @param parallel whether to split each sweep across multiple threads
+     */
+    public ValueIteration(Racetrack racetrack, CollisionModel collisionModel, boolean parallel) {
+        this(racetrack, collisionModel, UtilityInitializer.RANDOM, parallel);
+    }
+
+    /**
+     * Make a new value-iteration learner.
+     *
+     * Since every update in a sweep only reads the previous sweep's utilities, a parallel learner
+     * splits each sweep across the common fork-join pool and produces the same results as a serial one.
+     *
+     * @param racetrack the racetrack to learn
+     * @param collisionModel the collision model to use
+     * @param initializer how to choose the starting utilities
+     * @param parallel whether to split each sweep across multiple threads
+     */
+    public ValueIteration(Racetrack racetrack, CollisionModel collisionModel, UtilityInitializer initializer, boolean parallel) {
+        this(racetrack, collisionModel, initializer, parallel, RandomSource.threadLocal());
+    }
 
-        mdp = new RacetrackMDP(racetrack, collisionModel);
-        utility = new double[racetrack.getWidth()][racetrack.getHeight()][11][11];
-        bestActions = new Action[racetrack.getWidth()][racetrack.getHeight()][11][11];
+    /**
+     * Make a new value-iteration learner.
+     *
+     * @param racetrack the racetrack to learn
+     * @param collisionModel the collision model to use
+     * @param initializer how to choose the starting utilities
+     * @param parallel whether to split each sweep across multiple threads
+     * @param random the random source to draw from
+     */
+    public ValueIteration(Racetrack racetrack, CollisionModel collisionModel, UtilityInitializer initializer, boolean parallel, RandomSource random) {
+        super(racetrack, collisionModel, initializer, random);
 
-        initializeUtilities();
+        this.parallel = parallel;
+        nextUtility = new double[transitions.size()];
     }
 
     @Override
@@ -56,19 +86,6 @@ public class ValueIteration extends RacetrackLearner {
         return "Value iteration";
     }
 
-    private void initializeUtilities() {
-        //set random values for the initial utilities
-        for (int x = 0; x < racetrack.getWidth(); x++) {
-            for (int y = 0; y < racetrack.getHeight(); y++) {
-                for (int vx = -5; vx <= 5; vx++) {
-                    for (int vy = -5; vy <= 5; vy++) {
-                        utility[x][y][vx + 5][vy + 5] = Math.random();
-                    }
-                }
-            }
-        }
-    }
-
     /**
      * Performs one "round" of value iteration in which all of the utilities are updated once.
      */
@@ -77,106 +94,69 @@ public class ValueIteration extends RacetrackLearner {
         if (finished) {
             return;
         }
-        
-        double maxDelta = 0;
-        double[][][][] nextUtility = new double[racetrack.getWidth()][racetrack.getHeight()][11][11];
-
-	//iterate over all of the states
-        for (int x = 0; x < racetrack.getWidth(); x++) {
-            for (int y = 0; y < racetrack.getHeight(); y++) {
-                Position position = new Position(x, y);
-
-                if (!racetrack.isSafe(position) ||racetrack.finishLine().contains(position)) {
-                    continue;
-                }
-                iterationCount += 121 * 9; //count all of the expected utilities to be calculated
-                for (int vx = -5; vx <= 5; vx++) {
-                    for (int vy = -5; vy <= 5; vy++) {
-                        State state = new State(position, new Velocity(vx, vy));
-
-			//find the best expected utility over all of the actions
-                        double bestExpectedUtility = Double.NEGATIVE_INFINITY;
-                        Action bestAction = null;
-                        for (int ax = -1; ax <= 1; ax++) {
-                            for (int ay = -1; ay <= 1; ay++) {
-                                Action testAction = new Action(ax, ay);
-                                double expectedUtility = expectedUtility(state, testAction);
-
-                                if (expectedUtility > bestExpectedUtility) {
-                                    bestExpectedUtility = expectedUtility;
-                                    bestAction = testAction;
-                                }
-                                
-                            }
-                        }
-			//set the policy based on which action gave the best expected utility
-                        bestActions[x][y][vx + 5][vy + 5] = bestAction;
-
-                        nextUtility[x][y][vx + 5][vy + 5] = -1 + GAMMA * bestExpectedUtility;
-                        maxDelta = Math.max(maxDelta, Math.abs(nextUtility[x][y][vx + 5][vy + 5] - utility[x][y][vx + 5][vy + 5]));
-                    }
-                }
-            }
+
+        double maxDelta;
+        if (parallel) {
+            maxDelta = ForkJoinPool.commonPool().invoke(new Sweep(0, utility.length));
+        } else {
+            maxDelta = sweep(0, utility.length);
         }
+        iterationCount += utility.length * Action.COUNT; //count all of the expected utilities calculated
+
+        double[] previousUtility = utility;
         utility = nextUtility;
-        finished = maxDelta < EPSILON * (1 - GAMMA) / GAMMA;
+        nextUtility = previousUtility;
+        finished = maxDelta < CONVERGENCE_THRESHOLD;
     }
 
     /**
-     * Lookup the state's utility in the utility table.
+     * Updates the utilities and best actions for a range of states from the previous sweep's utilities.
      *
-     * @param state the state to lookup
-     * @return the state's utility
+     * @param from the id of the first state to update
+     * @param to the id after the last state to update
+     * @return the largest change in utility over the range
      */
-    private double getUtility(State state) {
-        //terminal states have utility 0
-        if (state == null) {
-            return 0.0;
+    private double sweep(int from, int to) {
+        double maxDelta = 0;
+
+	//iterate over the states the agent can occupy in this range
+        for (int id = from; id < to; id++) {
+            nextUtility[id] = backup(id);
+            maxDelta = Math.max(maxDelta, Math.abs(nextUtility[id] - utility[id]));
         }
-        Position position = state.getPosition();
-        Velocity velocity = state.getVelocity();
-        
-        return utility[position.getX()][position.getY()][velocity.getX() + 5][velocity.getY() + 5];
+        return maxDelta;
     }
 
     /**
-     * Compute the expected utility of performing a given action in a given state based on the
-     * transition model provided by the known MDP.
-     *
-     * @param state the state in which the action is performed
-     * @param action the action to consider
-     * @return the expected utility of the given state-action based on known utilities.
+     * A fork-join task that sweeps a range of states, splitting it in half until it is small enough
+     * to sweep directly, and reduces the largest change in utility over the range.
      */
-    private double expectedUtility(State state, Action action) {
-        double expectedUtility = 0;
-        for (PotentialState potentialState : mdp.getNextStates(state, action)) {
-            expectedUtility += potentialState.getProbability() * getUtility(potentialState.getState());
+    @SuppressWarnings("serial")
+    private class Sweep extends RecursiveTask<Double> {
+        private final int from;
+        private final int to;
+
+        Sweep(int from, int to) {
+            this.from = from;
+            this.to = to;
         }
-        return expectedUtility;
-    }
 
-    @Override
-    public boolean finished() {
-        return finished;
-    }
+        @Override
+        protected Double compute() {
+            if (to - from <= SWEEP_CHUNK) {
+                return sweep(from, to);
+            }
 
-    @Override
-    public Policy getPolicy() {
-        return policy;
+            int middle = (from + to) >>> 1;
+            Sweep left = new Sweep(from, middle);
+            left.fork();
+            double rightDelta = new Sweep(middle, to).compute();
+            return Math.max(left.join(), rightDelta);
+        }
     }
 
     @Override
-    public int getIterationCount() {
-        return iterationCount;
-    }
-
-    class ValueIterationPolicy implements Policy {
-        public Action getAction(State state) {
-            Position position = state.getPosition();
-            Velocity velocity = state.getVelocity();
-
-	    //lookup the best action based on the pre-determined actions which gave the maximum expected utility
-            return bestActions[position.getX()][position.getY()][velocity.getX() + 5][velocity.getY() + 5];
-        }
+    public boolean finished() {
+        return finished;
     }
 }
@@ -0,0 +1,129 @@
+package com.ai.io;
+
+import com.ai.alg.RacetrackLearner;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically saves checkpoints of running learners to a directory, so an interrupted run can resume them.
+ *
+ * A checkpoint copies the learner's tables on the learner's own thread (see `RacetrackLearner.checkpoint`),
+ * which is the only time the learner is paused. The copy is then written to disk on a background thread.
+ * If a learner is checkpointed again before its last checkpoint was written, only the newest one is written.
+ */
+public class Checkpointer implements AutoCloseable {
+    private static final Logger logger = Logger.getLogger(Checkpointer.class);
+
+    private final Path directory;
+    private final long intervalNanos;
+
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "checkpoint-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Map<Path, LearnerSnapshot> pending = new ConcurrentHashMap<>();
+    private final Map<String, Long> lastCheckpoint = new ConcurrentHashMap<>();
+
+    /**
+     * Makes a checkpointer that saves to the given directory.
+     *
+     * @param directory the directory to save checkpoints in, which must exist, or null to never checkpoint
+     * @param interval how long to wait between checkpoints of the same learner
+     * @param unit the unit of the interval
+     */
+    public Checkpointer(Path directory, long interval, TimeUnit unit) {
+        this.directory = directory;
+        this.intervalNanos = unit.toNanos(interval);
+    }
+
+    /**
+     * Restores a learner from its checkpoint, if it has one.
+     *
+     * @param learner the learner to restore
+     * @param name the name the learner is checkpointed under
+     * @return whether the learner was restored
+     * @throws IOException if the checkpoint cannot be read
+     */
+    public boolean resume(RacetrackLearner learner, String name) throws IOException {
+        lastCheckpoint.put(name, System.nanoTime());
+
+        Path path = path(name);
+        if (!Files.exists(path)) {
+            return false;
+        }
+
+        LearnerSnapshot snapshot = LearnerSnapshot.map(path);
+        learner.restore(snapshot);
+        logger.info("Resumed " + learner + " from " + path + " at iteration " + learner.getIterationCount());
+        return true;
+    }
+
+    /**
+     * Checkpoints a learner if it hasn't been checkpointed within the interval.
+     *
+     * @param learner the learner to checkpoint
+     * @param name the name to checkpoint the learner under
+     */
+    public void checkpointIfDue(RacetrackLearner learner, String name) {
+        if (directory == null) {
+            return;
+        }
+
+        long now = System.nanoTime();
+        Long last = lastCheckpoint.putIfAbsent(name, now);
+        if (last != null && now - last >= intervalNanos) {
+            lastCheckpoint.put(name, now);
+            checkpoint(learner, name);
+        }
+    }
+
+    /**
+     * Checkpoints a learner now. Must be called from the thread running the learner.
+     *
+     * @param learner the learner to checkpoint
+     * @param name the name to checkpoint the learner under
+     */
+    public void checkpoint(RacetrackLearner learner, String name) {
+        Path path = path(name);
+        if (pending.put(path, learner.checkpoint()) == null) {
+            writer.execute(() -> write(path));
+        }
+    }
+
+    private void write(Path path) {
+        LearnerSnapshot snapshot = pending.remove(path);
+        try {
+            snapshot.write(path);
+            logger.debug("Saved checkpoint of " + snapshot + " to " + path);
+        } catch (IOException ex) {
+            logger.error("Could not save checkpoint " + path, ex);
+        }
+    }
+
+    private Path path(String name) {
+        return directory.resolve(name + ".checkpoint");
+    }
+
+    /**
+     * Waits for every pending checkpoint to be written. If interrupted while waiting, the checkpoints still
+     * pending are left to finish in the background and the thread's interrupt flag is set again.
+     */
+    @Override
+    public void close() {
+        writer.shutdown();
+        try {
+            writer.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,533 @@
+package com.ai.io;
+
+import com.ai.Policy;
+import com.ai.Racetrack;
+import com.ai.RandomSource;
+import com.ai.model.Action;
+import com.ai.model.State;
+import com.ai.model.StateIndex;
+import com.ai.sim.CollisionModel;
+import com.ai.sim.TransitionTable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * What a learner has learned about a racetrack, in a form that can be written to a file and mapped back in.
+ *
+ * A snapshot file is a header followed by a number of sections:
+ *
+ *   header        - magic, version, racetrack hash and size, collision model, learner, iteration count,
+ *                   hyperparameters, number of states and which optional sections follow
+ *   states        - the state index (see `StateIndex`) of every transition table id, in increasing order, as ints
+ *   actions       - the index of the best action for every transition table id, as bytes (-1 for none)
+ *   utilities     - (optional) the utility of every transition table id, as floats
+ *   Q-values      - (optional) the Q-value of every transition table id and action, as floats
+ *   times visited - (optional, with the Q-values) the visit count of every transition table id, as ints
+ *   random state  - (optional) the state of the learner's random source (see `RandomSource.getState`), as longs
+ *
+ * A mapped snapshot serves its policy by binary searching the states section for a state's id, so it
+ * doesn't need the racetrack MDP compiled first, and a snapshot only takes space for the states the
+ * learner can reach. The sections of a mapped snapshot are read straight out of the mapping, so loading
+ * one costs nothing more than parsing its header.
+ */
+public class LearnerSnapshot {
+    public static final int VERSION = 3;
+
+    private static final int MAGIC = 0x52545053; //"RTPS"
+    private static final int HAS_UTILITIES = 1;
+    private static final int HAS_Q_VALUES = 2;
+    private static final int HAS_RANDOM_STATE = 4;
+    private static final int RANDOM_STATE_LONGS = 2;
+
+    private final long trackHash;
+    private final int width;
+    private final int height;
+    private final String collisionModel;
+    private final String learner;
+    private final int iterationCount;
+    private final Map<String, Double> hyperparameters = new LinkedHashMap<>();
+    private final int size;
+
+    private final ByteBuffer states;
+    private final ByteBuffer actions;
+    private ByteBuffer utilities;
+    private ByteBuffer qValues;
+    private ByteBuffer timesVisited;
+    private ByteBuffer randomState;
+
+    /**
+     * Makes a snapshot of a learner's best actions.
+     *
+     * @param racetrack the racetrack the learner is learning
+     * @param collisionModel the collision model the learner is using
+     * @param learner the name of the learner
+     * @param iterationCount how many iterations the learner has performed
+     * @param transitions the compiled transitions the learner's tables are indexed by
+     * @param bestActions the index of the best action for each transition table id, or -1 for none
+     */
+    public LearnerSnapshot(Racetrack racetrack, CollisionModel collisionModel, String learner, int iterationCount,
+                           TransitionTable transitions, byte[] bestActions) {
+        this.trackHash = racetrack.getContentHash();
+        this.width = racetrack.getWidth();
+        this.height = racetrack.getHeight();
+        this.collisionModel = collisionModel.toString();
+        this.learner = learner;
+        this.iterationCount = iterationCount;
+        this.size = transitions.size();
+
+        states = ByteBuffer.allocate(size * Integer.BYTES);
+        for (int id = 0; id < size; id++) {
+            states.putInt(id * Integer.BYTES, transitions.index(id));
+        }
+        actions = ByteBuffer.wrap(Arrays.copyOf(bestActions, size));
+    }
+
+    private LearnerSnapshot(ByteBuffer buffer) throws IOException {
+        if (buffer.remaining() < 2 * Integer.BYTES || buffer.getInt() != MAGIC) {
+            throw new IOException("Not a learner snapshot");
+        }
+        int version = buffer.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported learner snapshot version " + version + ", expected " + VERSION);
+        }
+
+        trackHash = buffer.getLong();
+        width = buffer.getInt();
+        height = buffer.getInt();
+        collisionModel = getString(buffer);
+        learner = getString(buffer);
+        iterationCount = buffer.getInt();
+        for (int i = buffer.getInt(); i > 0; i--) {
+            hyperparameters.put(getString(buffer), buffer.getDouble());
+        }
+        size = buffer.getInt();
+        int sections = buffer.getInt();
+
+        states = section(buffer, size * Integer.BYTES);
+        actions = section(buffer, size);
+        if ((sections & HAS_UTILITIES) != 0) {
+            utilities = section(buffer, size * Float.BYTES);
+        }
+        if ((sections & HAS_Q_VALUES) != 0) {
+            qValues = section(buffer, size * Action.COUNT * Float.BYTES);
+            timesVisited = section(buffer, size * Integer.BYTES);
+        }
+        if ((sections & HAS_RANDOM_STATE) != 0) {
+            randomState = section(buffer, RANDOM_STATE_LONGS * Long.BYTES);
+        }
+    }
+
+    /**
+     * Adds a hyperparameter the learner was configured with.
+     *
+     * @param name the name of the hyperparameter
+     * @param value the hyperparameter's value
+     * @return the current snapshot
+     */
+    public LearnerSnapshot withHyperparameter(String name, double value) {
+        hyperparameters.put(name, value);
+        return this;
+    }
+
+    /**
+     * Adds the learner's utility table.
+     *
+     * @param utilities the utility of every transition table id
+     * @return the current snapshot
+     */
+    public LearnerSnapshot withUtilities(double[] utilities) {
+        this.utilities = ByteBuffer.allocate(size * Float.BYTES);
+        for (int id = 0; id < size; id++) {
+            this.utilities.putFloat(id * Float.BYTES, (float)utilities[id]);
+        }
+        return this;
+    }
+
+    /**
+     * Adds the learner's Q-table.
+     *
+     * @param qValues the Q-value of every transition table id and action, at `id * Action.COUNT + action`
+     * @param timesVisited the visit count of every transition table id
+     * @return the current snapshot
+     */
+    public LearnerSnapshot withQValues(float[] qValues, int[] timesVisited) {
+        this.qValues = ByteBuffer.allocate(size * Action.COUNT * Float.BYTES);
+        this.qValues.asFloatBuffer().put(qValues);
+        this.timesVisited = ByteBuffer.allocate(size * Integer.BYTES);
+        this.timesVisited.asIntBuffer().put(timesVisited);
+        return this;
+    }
+
+    /**
+     * Adds the state of the learner's random source when the snapshot was taken.
+     *
+     * @param state the state given by `RandomSource.getState`
+     * @return the current snapshot
+     */
+    public LearnerSnapshot withRandomState(long[] state) {
+        if (state.length != RANDOM_STATE_LONGS) {
+            throw new IllegalArgumentException("A random state is " + RANDOM_STATE_LONGS + " longs, not " + state.length);
+        }
+        randomState = ByteBuffer.allocate(RANDOM_STATE_LONGS * Long.BYTES);
+        randomState.asLongBuffer().put(state);
+        return this;
+    }
+
+    /**
+     * Writes the snapshot to the given file with a single gathering write.
+     *
+     * The snapshot is written to a temporary file which then replaces the given file, so the file
+     * always holds a complete snapshot even if writing is interrupted.
+     *
+     * @param path the file to write to
+     * @throws IOException if the file cannot be written
+     */
+    public void write(Path path) throws IOException {
+        List<ByteBuffer> buffers = new ArrayList<>();
+        buffers.add(header());
+        buffers.add(states.duplicate());
+        buffers.add(actions.duplicate());
+        if (utilities != null) {
+            buffers.add(utilities.duplicate());
+        }
+        if (qValues != null) {
+            buffers.add(qValues.duplicate());
+            buffers.add(timesVisited.duplicate());
+        }
+        if (randomState != null) {
+            buffers.add(randomState.duplicate());
+        }
+        for (ByteBuffer buffer : buffers) {
+            buffer.rewind();
+        }
+
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer[] gather = buffers.toArray(new ByteBuffer[buffers.size()]);
+            ByteBuffer last = gather[gather.length - 1];
+            while (last.hasRemaining()) {
+                channel.write(gather);
+            }
+            channel.force(false);
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Maps a snapshot file into memory. The tables are read from the mapping as they are used.
+     *
+     * @param path the file to map
+     * @return the mapped snapshot
+     * @throws IOException if the file cannot be read or is not a snapshot
+     */
+    public static LearnerSnapshot map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new LearnerSnapshot(buffer);
+        }
+    }
+
+    private ByteBuffer header() {
+        byte[] collisionModelBytes = collisionModel.getBytes(StandardCharsets.UTF_8);
+        byte[] learnerBytes = learner.getBytes(StandardCharsets.UTF_8);
+        int length = 2 * Integer.BYTES + Long.BYTES + 2 * Integer.BYTES +
+                     Short.BYTES + collisionModelBytes.length + Short.BYTES + learnerBytes.length +
+                     2 * Integer.BYTES + 2 * Integer.BYTES;
+        for (String name : hyperparameters.keySet()) {
+            length += Short.BYTES + name.getBytes(StandardCharsets.UTF_8).length + Double.BYTES;
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(length);
+        header.putInt(MAGIC);
+        header.putInt(VERSION);
+        header.putLong(trackHash);
+        header.putInt(width);
+        header.putInt(height);
+        putString(header, collisionModelBytes);
+        putString(header, learnerBytes);
+        header.putInt(iterationCount);
+        header.putInt(hyperparameters.size());
+        for (Map.Entry<String, Double> hyperparameter : hyperparameters.entrySet()) {
+            putString(header, hyperparameter.getKey().getBytes(StandardCharsets.UTF_8));
+            header.putDouble(hyperparameter.getValue());
+        }
+        header.putInt(size);
+        header.putInt((utilities != null ? HAS_UTILITIES : 0) | (qValues != null ? HAS_Q_VALUES : 0) |
+                      (randomState != null ? HAS_RANDOM_STATE : 0));
+        header.flip();
+        return header;
+    }
+
+    private static void putString(ByteBuffer buffer, byte[] bytes) {
+        buffer.putShort((short)bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort() & 0xffff];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Slices the next section of the given length off the buffer.
+     */
+    private static ByteBuffer section(ByteBuffer buffer, int length) throws IOException {
+        if (buffer.remaining() < length) {
+            throw new IOException("Learner snapshot is truncated");
+        }
+        ByteBuffer section = buffer.slice();
+        section.limit(length);
+        buffer.position(buffer.position() + length);
+        return section;
+    }
+
+    /**
+     * Gives the hash of the racetrack the snapshot was taken on (see `Racetrack.getContentHash`).
+     *
+     * @return the racetrack's hash
+     */
+    public long getTrackHash() {
+        return trackHash;
+    }
+
+    /**
+     * Gives the name of the collision model the learner was using.
+     *
+     * @return the collision model's name
+     */
+    public String getCollisionModel() {
+        return collisionModel;
+    }
+
+    /**
+     * Gives the name of the learner the snapshot was taken of.
+     *
+     * @return the learner's name
+     */
+    public String getLearner() {
+        return learner;
+    }
+
+    /**
+     * Gives how many iterations the learner had performed.
+     *
+     * @return the learner's iteration count
+     */
+    public int getIterationCount() {
+        return iterationCount;
+    }
+
+    /**
+     * Gives the hyperparameters the learner was configured with, by name.
+     *
+     * @return the hyperparameters
+     */
+    public Map<String, Double> getHyperparameters() {
+        return Collections.unmodifiableMap(hyperparameters);
+    }
+
+    /**
+     * Gives the number of states in the learner's tables, which is the size of its transition table.
+     *
+     * @return the number of states
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gives the state index of the state with the given transition table id.
+     *
+     * @param id the id of the state
+     * @return the state's index
+     */
+    public int index(int id) {
+        return states.getInt(id * Integer.BYTES);
+    }
+
+    /**
+     * Gives the best action in the state with the given transition table id.
+     *
+     * @param id the id of the state
+     * @return the index of the action, or -1 if there is none
+     */
+    public int bestAction(int id) {
+        return actions.get(id);
+    }
+
+    /**
+     * Gives the transition table id of the state with the given index.
+     *
+     * @param index the state's index (see `StateIndex`)
+     * @return the state's id, or -1 if the learner has nothing for it
+     */
+    public int id(int index) {
+        int low = 0, high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int midIndex = index(mid);
+            if (midIndex < index) {
+                low = mid + 1;
+            } else if (midIndex > index) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Determines whether the snapshot holds a utility table.
+     *
+     * @return whether there are utilities
+     */
+    public boolean hasUtilities() {
+        return utilities != null;
+    }
+
+    /**
+     * Gives the utility of the state with the given transition table id.
+     *
+     * @param id the id of the state
+     * @return the state's utility
+     */
+    public double utility(int id) {
+        return utilities.getFloat(id * Float.BYTES);
+    }
+
+    /**
+     * Determines whether the snapshot holds a Q-table.
+     *
+     * @return whether there are Q-values
+     */
+    public boolean hasQValues() {
+        return qValues != null;
+    }
+
+    /**
+     * Gives the Q-value of an action in the state with the given transition table id.
+     *
+     * @param id the id of the state
+     * @param action the index of the action
+     * @return the Q-value, which is NaN if the learner never wrote it
+     */
+    public float qValue(int id, int action) {
+        return qValues.getFloat((id * Action.COUNT + action) * Float.BYTES);
+    }
+
+    /**
+     * Gives the number of times the state with the given transition table id was visited.
+     *
+     * @param id the id of the state
+     * @return the state's visit count
+     */
+    public int timesVisited(int id) {
+        return timesVisited.getInt(id * Integer.BYTES);
+    }
+
+    /**
+     * Determines whether the snapshot holds the state of the learner's random source.
+     *
+     * @return whether there is a random state
+     */
+    public boolean hasRandomState() {
+        return randomState != null;
+    }
+
+    /**
+     * Gives the state of the learner's random source when the snapshot was taken.
+     *
+     * @return the random state, to pass to `RandomSource.restore`
+     */
+    public long[] getRandomState() {
+        long[] state = new long[RANDOM_STATE_LONGS];
+        randomState.duplicate().asLongBuffer().get(state);
+        return state;
+    }
+
+    /**
+     * Gives the policy that takes the snapshot's best action in every state, and a random action in the
+     * states the learner never gave an action, as the Q-learners' policies do.
+     *
+     * @param racetrack the racetrack to follow the policy on, which must be the one the snapshot was taken on
+     * @return the policy
+     */
+    public Policy getPolicy(Racetrack racetrack) {
+        if (racetrack.getContentHash() != trackHash) {
+            throw new IllegalArgumentException("The snapshot of " + learner + " was not taken on " + racetrack);
+        }
+        return new SnapshotPolicy(racetrack.getStateIndex());
+    }
+
+    @Override
+    public String toString() {
+        return learner + " using " + collisionModel + " after " + iterationCount + " iterations";
+    }
+
+    /**
+     * The policy of a snapshot, which looks its actions up straight from the snapshot's sections, and
+     * acts randomly where there is no action to look up.
+     */
+    private class SnapshotPolicy implements Policy {
+        private final StateIndex stateIndex;
+        private final boolean deterministic;
+
+        SnapshotPolicy(StateIndex stateIndex) {
+            this.stateIndex = stateIndex;
+
+            boolean everyStateHasAction = true;
+            for (int id = 0; id < size; id++) {
+                if (id > 0 && index(id) <= index(id - 1)) {
+                    throw new IllegalArgumentException("The states of the snapshot of " + learner + " are out of order");
+                }
+                everyStateHasAction &= bestAction(id) != -1;
+            }
+            this.deterministic = everyStateHasAction;
+        }
+
+        @Override
+        public Action getAction(State state) {
+            return getAction(state, RandomSource.threadLocal());
+        }
+
+        @Override
+        public Action getAction(State state, RandomSource random) {
+            return Action.fromIndex(actionIndex(state.getPosition().getX(), state.getPosition().getY(),
+                                                state.getVelocity().getX(), state.getVelocity().getY(), random));
+        }
+
+        @Override
+        public int actionIndex(int x, int y, int vx, int vy) {
+            return actionIndex(x, y, vx, vy, RandomSource.threadLocal());
+        }
+
+        @Override
+        public int actionIndex(int x, int y, int vx, int vy, RandomSource random) {
+            int id = stateIndex.contains(x, y, vx, vy) ? id(stateIndex.index(x, y, vx, vy)) : -1;
+            int action = id == -1 ? -1 : bestAction(id);
+            return action == -1 ? random.nextInt(Action.COUNT) : action;
+        }
+
+        @Override
+        public boolean isDeterministic() {
+            return deterministic;
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.ai.io;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The file formats learning curves can be streamed in, one point per line.
+ *
+ *   CSV   - a header line, then comma-separated values (quoted when they hold a comma or quote)
+ *   JSONL - one flat JSON object per line, with null for values that aren't finite numbers
+ */
+public enum LearningCurveFormat {
+    CSV {
+        @Override
+        public String header() {
+            return String.join(",", FIELDS);
+        }
+
+        @Override
+        public String format(LearningCurvePoint point) {
+            return quote(point.getLearner()) + "," + quote(point.getRacetrack()) + "," + quote(point.getCollisionModel()) + "," +
+                   point.getIteration() + "," + point.getMean() + "," + point.getConfidence() + "," + point.getVariance() + "," +
+                   point.isAtIterationLimit() + "," + point.getWallMillis() + "," + point.getIterationsPerSecond();
+        }
+
+        @Override
+        public LearningCurvePoint parse(String line) {
+            if (line.equals(header())) {
+                return null;
+            }
+
+            List<String> values = new ArrayList<>();
+            StringBuilder value = new StringBuilder();
+            boolean quoted = false;
+            for (int i = 0; i < line.length(); i++) {
+                char c = line.charAt(i);
+                if (quoted && c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    value.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = !quoted;
+                } else if (c == ',' && !quoted) {
+                    values.add(value.toString());
+                    value.setLength(0);
+                } else {
+                    value.append(c);
+                }
+            }
+            values.add(value.toString());
+            return point(values);
+        }
+
+        private String quote(String value) {
+            if (value.indexOf(',') == -1 && value.indexOf('"') == -1) {
+                return value;
+            }
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+    },
+    JSONL {
+        @Override
+        public String header() {
+            return null;
+        }
+
+        @Override
+        public String format(LearningCurvePoint point) {
+            return "{\"learner\":" + quote(point.getLearner()) +
+                   ",\"racetrack\":" + quote(point.getRacetrack()) +
+                   ",\"collision_model\":" + quote(point.getCollisionModel()) +
+                   ",\"iteration\":" + point.getIteration() +
+                   ",\"mean\":" + number(point.getMean()) +
+                   ",\"confidence\":" + number(point.getConfidence()) +
+                   ",\"variance\":" + number(point.getVariance()) +
+                   ",\"at_iteration_limit\":" + point.isAtIterationLimit() +
+                   ",\"wall_millis\":" + point.getWallMillis() +
+                   ",\"iterations_per_second\":" + number(point.getIterationsPerSecond()) + "}";
+        }
+
+        /**
+         * Gives a double as a JSON number, or null for NaN and the infinities, which JSON has no numbers for.
+         */
+        private String number(double value) {
+            return Double.isNaN(value) || Double.isInfinite(value) ? "null" : Double.toString(value);
+        }
+
+        /**
+         * Parses the flat objects written by `format`, which always have the fields in the same order.
+         */
+        @Override
+        public LearningCurvePoint parse(String line) {
+            List<String> values = new ArrayList<>();
+            int i = line.indexOf('{') + 1;
+            while (i < line.length() && line.charAt(i) != '}') {
+                //skip the field name and colon
+                i = line.indexOf(':', skipString(line, line.indexOf('"', i))) + 1;
+
+                StringBuilder value = new StringBuilder();
+                if (line.charAt(i) == '"') {
+                    int end = skipString(line, i);
+                    for (int j = i + 1; j < end - 1; j++) {
+                        char c = line.charAt(j);
+                        if (c == '\\') {
+                            c = line.charAt(++j);
+                        }
+                        value.append(c);
+                    }
+                    i = end;
+                } else {
+                    while (line.charAt(i) != ',' && line.charAt(i) != '}') {
+                        value.append(line.charAt(i++));
+                    }
+                }
+                values.add(value.toString());
+
+                if (line.charAt(i) == ',') {
+                    i++;
+                }
+            }
+            return point(values);
+        }
+
+        private int skipString(String line, int start) {
+            int i = start + 1;
+            while (line.charAt(i) != '"') {
+                i += line.charAt(i) == '\\' ? 2 : 1;
+            }
+            return i + 1;
+        }
+
+        private String quote(String value) {
+            return '"' + value.replace("\\", "\\\\").replace("\"", "\\\"") + '"';
+        }
+    };
+
+    private static final String[] FIELDS = {
+            "learner", "racetrack", "collision_model", "iteration", "mean", "confidence", "variance",
+            "at_iteration_limit", "wall_millis", "iterations_per_second"
+    };
+
+    /**
+     * Gives the line to start a new file with.
+     *
+     * @return the header line, or null if the format has none
+     */
+    public abstract String header();
+
+    /**
+     * Formats a point as a single line, without the line separator.
+     *
+     * @param point the point to format
+     * @return the formatted line
+     */
+    public abstract String format(LearningCurvePoint point);
+
+    /**
+     * Parses a line written by `format`.
+     *
+     * @param line the line to parse
+     * @return the point, or null if the line is the header
+     */
+    public abstract LearningCurvePoint parse(String line);
+
+    /**
+     * Gives the format for a file, which is JSONL for files ending in ".jsonl" and CSV otherwise.
+     *
+     * @param path the file
+     * @return the file's format
+     */
+    public static LearningCurveFormat forPath(Path path) {
+        return path.getFileName().toString().endsWith(".jsonl") ? JSONL : CSV;
+    }
+
+    private static LearningCurvePoint point(List<String> values) {
+        if (values.size() != FIELDS.length) {
+            throw new IllegalArgumentException("Expected " + FIELDS.length + " values in a learning curve point, but found " + values.size());
+        }
+        return new LearningCurvePoint(values.get(0), values.get(1), values.get(2),
+                Integer.parseInt(values.get(3)), parseDouble(values.get(4)), parseDouble(values.get(5)),
+                parseDouble(values.get(6)), Boolean.parseBoolean(values.get(7)), Long.parseLong(values.get(8)),
+                parseDouble(values.get(9)));
+    }
+
+    private static double parseDouble(String value) {
+        return value.equals("null") ? Double.NaN : Double.parseDouble(value);
+    }
+}
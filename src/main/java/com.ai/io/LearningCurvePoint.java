@@ -0,0 +1,100 @@
+package com.ai.io;
+
+/**
+ * A single point on a learner's learning curve: how well the learner's policy did after some number of iterations.
+ */
+public class LearningCurvePoint {
+    private final String learner;
+    private final String racetrack;
+    private final String collisionModel;
+    private final int iteration;
+    private final double mean;
+    private final double confidence;
+    private final double variance;
+    private final boolean atIterationLimit;
+    private final long wallMillis;
+    private final double iterationsPerSecond;
+
+    /**
+     * Makes a point on a learning curve.
+     *
+     * @param learner the name of the learner
+     * @param racetrack the name of the racetrack being learned
+     * @param collisionModel the name of the collision model being used
+     * @param iteration the learner's iteration count
+     * @param mean the mean cost of the learner's policy
+     * @param confidence the half-width of the confidence interval of the mean
+     * @param variance the variance of the cost
+     * @param atIterationLimit whether the policy's races were still hitting the policy tester's iteration limit
+     * @param wallMillis how long the learner had been running, in milliseconds
+     * @param iterationsPerSecond how many iterations the learner performed per second since the previous point
+     */
+    public LearningCurvePoint(String learner, String racetrack, String collisionModel, int iteration,
+                              double mean, double confidence, double variance, boolean atIterationLimit,
+                              long wallMillis, double iterationsPerSecond) {
+        this.learner = learner;
+        this.racetrack = racetrack;
+        this.collisionModel = collisionModel;
+        this.iteration = iteration;
+        this.mean = mean;
+        this.confidence = confidence;
+        this.variance = variance;
+        this.atIterationLimit = atIterationLimit;
+        this.wallMillis = wallMillis;
+        this.iterationsPerSecond = iterationsPerSecond;
+    }
+
+    public String getLearner() {
+        return learner;
+    }
+
+    public String getRacetrack() {
+        return racetrack;
+    }
+
+    public String getCollisionModel() {
+        return collisionModel;
+    }
+
+    /**
+     * Gives the name of the curve this point is on, which is the same for every point of a learner's run.
+     *
+     * @return the name of the curve
+     */
+    public String getCurve() {
+        return learner + " on " + racetrack + " using " + collisionModel;
+    }
+
+    public int getIteration() {
+        return iteration;
+    }
+
+    public double getMean() {
+        return mean;
+    }
+
+    public double getConfidence() {
+        return confidence;
+    }
+
+    public double getVariance() {
+        return variance;
+    }
+
+    public boolean isAtIterationLimit() {
+        return atIterationLimit;
+    }
+
+    public long getWallMillis() {
+        return wallMillis;
+    }
+
+    public double getIterationsPerSecond() {
+        return iterationsPerSecond;
+    }
+
+    @Override
+    public String toString() {
+        return getCurve() + " at iteration " + iteration + ": " + mean + " +/- " + confidence;
+    }
+}
@@ -0,0 +1,190 @@
+package com.ai.io;
+
+import org.apache.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Streams learning curve points to a CSV or JSONL file (see `LearningCurveFormat`) as they are recorded.
+ *
+ * Recording only queues the point, so learners are never held up by the disk. A background thread appends
+ * the queued points through a buffered writer and flushes whenever the queue runs dry, so the file can be
+ * followed while the run goes on. Points are appended to an existing file, so a resumed run carries on
+ * the same curves.
+ *
+ * Each point's wall time is measured from when the sink was opened, and its iterations per second from
+ * the previous point on the same curve. A curve carried on from a resumed learner should be marked with
+ * `resume`, so its first point is measured from where the learner was resumed rather than from iteration 0.
+ *
+ * If the file cannot be written, the writer thread stops, every point recorded after that is dropped,
+ * and the error is thrown again on `close`.
+ */
+public class LearningCurveSink implements AutoCloseable {
+    private static final Logger logger = Logger.getLogger(LearningCurveSink.class);
+
+    /* Queued to tell the writer thread to stop */
+    private static final LearningCurvePoint END = new LearningCurvePoint("", "", "", 0, 0, 0, 0, false, 0, 0);
+
+    private final Path path;
+    private final LearningCurveFormat format;
+    private final BufferedWriter out;
+    private final BlockingQueue<LearningCurvePoint> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    /* The error that stopped the writer thread, if it has stopped */
+    private volatile IOException failure;
+
+    private final long openedNanos = System.nanoTime();
+    /* The iteration count and time of the last point on each curve */
+    private final Map<String, long[]> lastPoints = new ConcurrentHashMap<>();
+
+    /**
+     * Opens a sink that appends to the given file, in the format given by its name.
+     *
+     * @param path the file to append to
+     * @throws IOException if the file cannot be opened
+     */
+    public LearningCurveSink(Path path) throws IOException {
+        this.path = path;
+        this.format = LearningCurveFormat.forPath(path);
+
+        boolean empty = !Files.exists(path) || Files.size(path) == 0;
+        out = Files.newBufferedWriter(path, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        if (empty && format.header() != null) {
+            out.write(format.header());
+            out.newLine();
+        }
+
+        writer = new Thread(this::write, "learning-curve-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Queues a point to be written.
+     *
+     * @param learner the name of the learner
+     * @param racetrack the name of the racetrack being learned
+     * @param collisionModel the name of the collision model being used
+     * @param iteration the learner's iteration count
+     * @param mean the mean cost of the learner's policy
+     * @param confidence the half-width of the confidence interval of the mean
+     * @param variance the variance of the cost
+     * @param atIterationLimit whether the policy's races were still hitting the policy tester's iteration limit
+     * @return the point, which is dropped rather than queued if the file can no longer be written
+     */
+    public LearningCurvePoint record(String learner, String racetrack, String collisionModel, int iteration,
+                                     double mean, double confidence, double variance, boolean atIterationLimit) {
+        long now = System.nanoTime();
+        long[] last = lastPoints.put(curve(learner, racetrack, collisionModel), new long[] {iteration, now});
+        long lastIteration = last == null ? 0 : last[0];
+        long lastNanos = last == null ? openedNanos : last[1];
+        double iterationsPerSecond = now == lastNanos ? 0 : (iteration - lastIteration) * 1e9 / (now - lastNanos);
+
+        LearningCurvePoint point = new LearningCurvePoint(learner, racetrack, collisionModel, iteration, mean, confidence,
+                variance, atIterationLimit, (now - openedNanos) / 1000000, iterationsPerSecond);
+        if (failure == null) {
+            queue.add(point);
+        }
+        return point;
+    }
+
+    /**
+     * Marks a curve as carried on from a resumed learner, so the iterations per second of its next point
+     * only count the iterations done since now.
+     *
+     * @param learner the name of the learner
+     * @param racetrack the name of the racetrack being learned
+     * @param collisionModel the name of the collision model being used
+     * @param iteration the learner's iteration count when it was resumed
+     */
+    public void resume(String learner, String racetrack, String collisionModel, int iteration) {
+        lastPoints.put(curve(learner, racetrack, collisionModel), new long[] {iteration, System.nanoTime()});
+    }
+
+    private static String curve(String learner, String racetrack, String collisionModel) {
+        return learner + " on " + racetrack + " using " + collisionModel;
+    }
+
+    private void write() {
+        try {
+            while (true) {
+                LearningCurvePoint point = queue.poll();
+                if (point == null) {
+                    out.flush();
+                    point = queue.take();
+                }
+                if (point == END) {
+                    break;
+                }
+
+                out.write(format.format(point));
+                out.newLine();
+            }
+            out.close();
+        } catch (IOException ex) {
+            logger.error("Could not write learning curve to " + path + ", dropping the rest of it", ex);
+            failure = ex;
+            queue.clear();
+            try {
+                out.close();
+            } catch (IOException closeEx) {
+                ex.addSuppressed(closeEx);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Writes every queued point and closes the file. If interrupted while waiting for the queued points to
+     * be written, they are left to be written in the background and the thread's interrupt flag is set again.
+     *
+     * @throws IOException if the points could not be written, or the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        queue.add(END);
+        try {
+            writer.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Reads every point from a learning curve file, in the format given by its name.
+     *
+     * @param path the file to read
+     * @return the points, in the order they were written
+     * @throws IOException if the file cannot be read
+     */
+    public static List<LearningCurvePoint> read(Path path) throws IOException {
+        LearningCurveFormat format = LearningCurveFormat.forPath(path);
+        List<LearningCurvePoint> points = new ArrayList<>();
+        try (BufferedReader in = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                LearningCurvePoint point = line.isEmpty() ? null : format.parse(line);
+                if (point != null) {
+                    points.add(point);
+                }
+            }
+        }
+        return points;
+    }
+}
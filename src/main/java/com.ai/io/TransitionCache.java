@@ -0,0 +1,256 @@
+package com.ai.io;
+
+import com.ai.Racetrack;
+import com.ai.model.Action;
+import com.ai.sim.CollisionModel;
+import com.ai.sim.RacetrackMDP;
+import com.ai.sim.ReachableStates;
+import com.ai.sim.TransitionTable;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A directory of compiled transition tables, so the moves on a racetrack only have to be traced once
+ * rather than on every run.
+ *
+ * Each table is saved to a file named after the racetrack's content hash (see `Racetrack.getContentHash`),
+ * the collision model and the fingerprint of the MDP's semantics (see `getSemantics`), so changing a
+ * racetrack or how its moves play out gives it a new file, and the stale one is never read.
+ * A transition file is a header followed by the table's arrays:
+ *
+ *   header        - magic, version, semantics, racetrack hash and size, collision model, number of states and entries
+ *   states        - the state index (see `StateIndex`) of every id, as ints
+ *   row starts    - the first entry of every (id, action) row, followed by the number of entries, as ints
+ *   successors    - the successor id of every entry, as ints
+ *   probabilities - the probability of every entry, as floats
+ *
+ * Loading a table maps its file read-only and copies the arrays straight out of the mapping. A file that
+ * doesn't match its racetrack, or is from another version, is compiled again and replaced. The whole file
+ * is mapped as one buffer, so tables whose file would be larger than 2GB are never saved.
+ */
+public class TransitionCache {
+    private static final Logger logger = Logger.getLogger(TransitionCache.class);
+
+    public static final int VERSION = 2;
+
+    private static final int MAGIC = 0x52545454; //"RTTT"
+
+    private final Path directory;
+
+    /**
+     * Makes a cache of transition tables in the given directory, making the directory if needed.
+     *
+     * @param directory the directory to keep the transition files in
+     * @throws IOException if the directory cannot be made
+     */
+    public TransitionCache(Path directory) throws IOException {
+        this.directory = Files.createDirectories(directory);
+    }
+
+    /**
+     * Gives the compiled transitions for a racetrack and collision model, loading them from their file if
+     * it is up to date, and otherwise compiling them and saving them for next time.
+     *
+     * @param racetrack the racetrack
+     * @param collisionModel the collision model
+     * @return the transition table
+     */
+    public TransitionTable get(Racetrack racetrack, CollisionModel collisionModel) {
+        Path path = getPath(racetrack, collisionModel);
+        if (Files.exists(path)) {
+            try {
+                return map(path, racetrack, collisionModel);
+            } catch (IOException ex) {
+                logger.warn("Compiling the transitions again, since " + path + " could not be loaded: " + ex.getMessage());
+            }
+        }
+
+        logger.debug("Compiling the transitions for " + racetrack + " using " + collisionModel + "...");
+        TransitionTable transitions = new TransitionTable(new RacetrackMDP(racetrack, collisionModel),
+                                                          new ReachableStates(racetrack, collisionModel));
+        try {
+            write(path, racetrack, collisionModel, transitions);
+        } catch (IOException ex) {
+            logger.warn("Could not save the transitions to " + path, ex);
+        }
+        return transitions;
+    }
+
+    /**
+     * Gives the file the transitions for a racetrack and collision model are kept in.
+     *
+     * @param racetrack the racetrack
+     * @param collisionModel the collision model
+     * @return the transition file
+     */
+    public Path getPath(Racetrack racetrack, CollisionModel collisionModel) {
+        return directory.resolve(String.format("%016x-%s-%08x.transitions", racetrack.getContentHash(),
+                collisionModel.toString().replace(' ', '-'), getSemantics()));
+    }
+
+    /**
+     * Gives a fingerprint of what the compiled transitions mean, made from the MDP's transition version and
+     * action success rate, so transitions compiled under other semantics are never loaded.
+     *
+     * @return the semantics fingerprint
+     */
+    public static int getSemantics() {
+        long successRate = Double.doubleToLongBits(RacetrackMDP.ACTION_SUCCESS_RATE);
+        return 31 * RacetrackMDP.TRANSITION_VERSION + (int)(successRate ^ (successRate >>> 32));
+    }
+
+    /**
+     * Writes a transition table to the given file with a single gathering write.
+     *
+     * The table is written to a temporary file which then replaces the given file, so the file always holds
+     * a complete table, even if writing is interrupted or another thread is saving the same table.
+     *
+     * @param path the file to write to
+     * @param racetrack the racetrack the transitions were compiled for
+     * @param collisionModel the collision model the transitions were compiled with
+     * @param transitions the transition table
+     * @throws IOException if the file cannot be written, or the table is too large to map in a single buffer
+     */
+    public static void write(Path path, Racetrack racetrack, CollisionModel collisionModel, TransitionTable transitions) throws IOException {
+        int size = transitions.size();
+        int entries = transitions.entries();
+        byte[] collisionModelBytes = collisionModel.toString().getBytes(StandardCharsets.UTF_8);
+
+        ByteBuffer header = ByteBuffer.allocate(3 * Integer.BYTES + Long.BYTES + 2 * Integer.BYTES +
+                                                Short.BYTES + collisionModelBytes.length + 2 * Integer.BYTES);
+        header.putInt(MAGIC);
+        header.putInt(VERSION);
+        header.putInt(getSemantics());
+        header.putLong(racetrack.getContentHash());
+        header.putInt(racetrack.getWidth());
+        header.putInt(racetrack.getHeight());
+        header.putShort((short)collisionModelBytes.length);
+        header.put(collisionModelBytes);
+        header.putInt(size);
+        header.putInt(entries);
+        header.flip();
+
+        if (header.remaining() + tableLength(size, entries) > Integer.MAX_VALUE) {
+            throw new IOException("A table of " + size + " states and " + entries + " entries is too large for a transition file");
+        }
+
+        ByteBuffer states = ByteBuffer.allocate(size * Integer.BYTES);
+        ByteBuffer rowStart = ByteBuffer.allocate((size * Action.COUNT + 1) * Integer.BYTES);
+        for (int id = 0; id < size; id++) {
+            states.putInt(transitions.index(id));
+            for (int action = 0; action < Action.COUNT; action++) {
+                rowStart.putInt(transitions.rowStart(id, action));
+            }
+        }
+        rowStart.putInt(entries);
+
+        ByteBuffer successors = ByteBuffer.allocate(entries * Integer.BYTES);
+        ByteBuffer probabilities = ByteBuffer.allocate(entries * Float.BYTES);
+        for (int entry = 0; entry < entries; entry++) {
+            successors.putInt(transitions.successor(entry));
+            probabilities.putFloat(transitions.probability(entry));
+        }
+
+        ByteBuffer[] gather = {header, states, rowStart, successors, probabilities};
+        long remaining = 0;
+        for (int i = 0; i < gather.length; i++) {
+            if (i > 0) {
+                gather[i].flip();
+            }
+            remaining += gather[i].remaining();
+        }
+
+        Path temporary = Files.createTempFile(path.toAbsolutePath().getParent(), path.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                while (remaining > 0) {
+                    remaining -= channel.write(gather);
+                }
+                channel.force(false);
+            }
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Maps a transition file into memory and loads its table, checking it was compiled for the given
+     * racetrack and collision model.
+     *
+     * @param path the file to map
+     * @param racetrack the racetrack the transitions should be for
+     * @param collisionModel the collision model the transitions should be for
+     * @return the transition table
+     * @throws IOException if the file cannot be read, or does not hold the transitions asked for
+     */
+    public static TransitionTable map(Path path, Racetrack racetrack, CollisionModel collisionModel) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Transition file is too large to map");
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        if (buffer.remaining() < 2 * Integer.BYTES || buffer.getInt() != MAGIC) {
+            throw new IOException("Not a transition file");
+        }
+        int version = buffer.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported transition file version " + version + ", expected " + VERSION);
+        }
+        if (buffer.getInt() != getSemantics()) {
+            throw new IOException("The transitions were compiled under different MDP semantics");
+        }
+        if (buffer.getLong() != racetrack.getContentHash() || buffer.getInt() != racetrack.getWidth() ||
+            buffer.getInt() != racetrack.getHeight()) {
+            throw new IOException("The transitions were compiled for a different racetrack than " + racetrack);
+        }
+        byte[] collisionModelBytes = new byte[buffer.getShort() & 0xffff];
+        buffer.get(collisionModelBytes);
+        if (!new String(collisionModelBytes, StandardCharsets.UTF_8).equals(collisionModel.toString())) {
+            throw new IOException("The transitions were compiled for a different collision model than " + collisionModel);
+        }
+
+        int size = buffer.getInt();
+        int entries = buffer.getInt();
+        if (size < 0 || entries < 0 || buffer.remaining() != tableLength(size, entries)) {
+            throw new IOException("Transition file is truncated");
+        }
+
+        int[] states = new int[size];
+        int[] rowStart = new int[size * Action.COUNT + 1];
+        int[] successors = new int[entries];
+        float[] probabilities = new float[entries];
+        buffer.asIntBuffer().get(states);
+        buffer.position(buffer.position() + states.length * Integer.BYTES);
+        buffer.asIntBuffer().get(rowStart);
+        buffer.position(buffer.position() + rowStart.length * Integer.BYTES);
+        buffer.asIntBuffer().get(successors);
+        buffer.position(buffer.position() + successors.length * Integer.BYTES);
+        buffer.asFloatBuffer().get(probabilities);
+
+        try {
+            return new TransitionTable(racetrack.getStateIndex(), states, rowStart, successors, probabilities);
+        } catch (IllegalArgumentException | IndexOutOfBoundsException ex) {
+            throw new IOException("Transition file is corrupt", ex);
+        }
+    }
+
+    /**
+     * Gives the number of bytes the arrays of a table take up in its file, in long so it can't overflow.
+     */
+    private static long tableLength(long size, long entries) {
+        return (size + size * Action.COUNT + 1 + entries) * Integer.BYTES + entries * Float.BYTES;
+    }
+}
@@ -0,0 +1,56 @@
+package com.ai.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A count of how many times something happened, which many threads can add to without contending.
+ *
+ * Adding does nothing while instrumentation is disabled.
+ */
+public class Counter implements CounterMXBean {
+    private final String name;
+    private final LongAdder count = new LongAdder();
+
+    Counter(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Counts one more occurrence.
+     */
+    public void increment() {
+        if (Instrumentation.enabled) {
+            count.increment();
+        }
+    }
+
+    /**
+     * Counts the given number of occurrences.
+     *
+     * @param occurrences the number of occurrences
+     */
+    public void add(long occurrences) {
+        if (Instrumentation.enabled) {
+            count.add(occurrences);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public long getCount() {
+        return count.sum();
+    }
+
+    @Override
+    public void reset() {
+        count.reset();
+    }
+
+    @Override
+    public String toString() {
+        return name + ": count=" + getCount();
+    }
+}
@@ -0,0 +1,9 @@
+package com.ai.metrics;
+
+/**
+ * The view of a `Counter` exposed over JMX.
+ */
+public interface CounterMXBean {
+    long getCount();
+    void reset();
+}
@@ -0,0 +1,139 @@
+package com.ai.metrics;
+
+import org.apache.log4j.Logger;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The registry of the timers and counters placed around the hot paths of the simulators, learners and testers.
+ *
+ * Instrumentation is disabled by default, which makes every timer and counter a no-op costing a single
+ * volatile field read. It should be enabled before any work starts, since timings that straddle enabling
+ * it are dropped. Once enabled, every instrument is registered over JMX under the "com.ai" domain, and
+ * a summary of them all can be logged periodically.
+ */
+public final class Instrumentation {
+    private static final Logger logger = Logger.getLogger(Instrumentation.class);
+    private static final String DOMAIN = "com.ai";
+
+    static volatile boolean enabled = false;
+
+    private static final Map<String, Timer> timers = new ConcurrentSkipListMap<>();
+    private static final Map<String, Counter> counters = new ConcurrentSkipListMap<>();
+    private static ScheduledExecutorService reporter;
+
+    private Instrumentation() {
+    }
+
+    /**
+     * Gives the timer with the given name, making it if needed.
+     *
+     * @param name the name of the timer
+     * @return the timer
+     */
+    public static Timer timer(String name) {
+        return timers.computeIfAbsent(name, key -> register("Timer", new Timer(key), key));
+    }
+
+    /**
+     * Gives the counter with the given name, making it if needed.
+     *
+     * @param name the name of the counter
+     * @return the counter
+     */
+    public static Counter counter(String name) {
+        return counters.computeIfAbsent(name, key -> register("Counter", new Counter(key), key));
+    }
+
+    /**
+     * Determines whether instrumentation is enabled.
+     *
+     * @return whether the instruments are recording
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Starts recording, and registers every instrument over JMX.
+     */
+    public static synchronized void enable() {
+        if (enabled) {
+            return;
+        }
+        enabled = true;
+        timers.forEach((name, timer) -> register("Timer", timer, name));
+        counters.forEach((name, counter) -> register("Counter", counter, name));
+    }
+
+    private static <T> T register(String type, T instrument, String name) {
+        if (!enabled) {
+            return instrument;
+        }
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName objectName = new ObjectName(DOMAIN + ":type=" + type + ",name=" + ObjectName.quote(name));
+            if (!server.isRegistered(objectName)) {
+                server.registerMBean(instrument, objectName);
+            }
+        } catch (JMException ex) {
+            logger.warn("Could not register " + name + " over JMX", ex);
+        }
+        return instrument;
+    }
+
+    /**
+     * Gives a summary of every instrument that has recorded something, one per line.
+     *
+     * @return the summary
+     */
+    public static String summary() {
+        StringBuilder summary = new StringBuilder("Instrumentation summary:");
+        for (Timer timer : timers.values()) {
+            if (timer.getCount() > 0) {
+                summary.append(System.lineSeparator()).append("  ").append(timer);
+            }
+        }
+        for (Counter counter : counters.values()) {
+            if (counter.getCount() > 0) {
+                summary.append(System.lineSeparator()).append("  ").append(counter);
+            }
+        }
+        return summary.toString();
+    }
+
+    /**
+     * Logs a summary of every instrument at the given period, on a background thread.
+     *
+     * @param period how long to wait between summaries
+     * @param unit the unit of the period
+     */
+    public static synchronized void startReporting(long period, TimeUnit unit) {
+        stopReporting();
+        reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "instrumentation-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reporter.scheduleAtFixedRate(() -> logger.info(summary()), period, period, unit);
+    }
+
+    /**
+     * Stops logging periodic summaries.
+     */
+    public static synchronized void stopReporting() {
+        if (reporter != null) {
+            reporter.shutdownNow();
+            reporter = null;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.ai.metrics;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records how long something takes, as a count, a total and a histogram of latencies that many threads
+ * can record into without contending.
+ *
+ * The histogram has a bucket for every latency under 16ns, then 8 buckets for each power of two above
+ * that (like HdrHistogram with one significant digit), so percentiles are accurate to within 12.5%.
+ * Each bucket is a striped `LongAdder`.
+ *
+ * Timing is used as:
+ *
+ *   long start = timer.start();
+ *   ...
+ *   timer.stop(start);
+ *
+ * While instrumentation is disabled, `start` doesn't read the clock and `stop` does nothing. A timing
+ * started while it was disabled is never recorded, even if it is enabled before the timing stops.
+ */
+public class Timer implements TimerMXBean {
+    private static final int LINEAR_BUCKETS = 16;
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int FIRST_EXPONENT = 4; //the exponent of LINEAR_BUCKETS
+    private static final int BUCKETS = LINEAR_BUCKETS + (63 - FIRST_EXPONENT) * SUB_BUCKETS;
+
+    private final String name;
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+
+    Timer(String name) {
+        this.name = name;
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Starts timing something.
+     *
+     * @return the time to pass to `stop`, or 0 if instrumentation is disabled
+     */
+    public long start() {
+        return Instrumentation.enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Stops timing something and records how long it took.
+     *
+     * @param start the time given by `start`, or 0 to record nothing
+     */
+    public void stop(long start) {
+        if (start != 0 && Instrumentation.enabled) {
+            record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Records a latency.
+     *
+     * @param nanos the latency in nanoseconds
+     */
+    public void record(long nanos) {
+        nanos = Math.max(nanos, 0);
+        count.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+        buckets[bucket(nanos)].increment();
+    }
+
+    private static int bucket(long nanos) {
+        if (nanos < LINEAR_BUCKETS) {
+            return (int)nanos;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        int subBucket = (int)(nanos >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return LINEAR_BUCKETS + (exponent - FIRST_EXPONENT) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * Gives the largest latency that falls in a bucket.
+     */
+    private static long bucketLimit(int bucket) {
+        if (bucket < LINEAR_BUCKETS) {
+            return bucket;
+        }
+        int exponent = (bucket - LINEAR_BUCKETS) / SUB_BUCKETS + FIRST_EXPONENT;
+        int subBucket = (bucket - LINEAR_BUCKETS) % SUB_BUCKETS;
+        return ((long)(SUB_BUCKETS + subBucket + 1) << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+
+    /**
+     * Gives a percentile of the recorded latencies, as the upper bound of the bucket it falls in.
+     *
+     * @param percentile the percentile, from 0 to 100
+     * @return the latency in nanoseconds, or 0 if nothing has been recorded
+     */
+    public long percentileNanos(double percentile) {
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets[i].sum();
+            total += counts[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long)Math.ceil(percentile / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(bucketLimit(i), maxNanos.get());
+            }
+        }
+        return maxNanos.get();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public long getCount() {
+        return count.sum();
+    }
+
+    @Override
+    public double getTotalMillis() {
+        return totalNanos.sum() / 1e6;
+    }
+
+    @Override
+    public double getMeanMicros() {
+        long count = getCount();
+        return count == 0 ? 0 : totalNanos.sum() / 1e3 / count;
+    }
+
+    @Override
+    public double getP50Micros() {
+        return percentileNanos(50) / 1e3;
+    }
+
+    @Override
+    public double getP99Micros() {
+        return percentileNanos(99) / 1e3;
+    }
+
+    @Override
+    public double getMaxMicros() {
+        return maxNanos.get() / 1e3;
+    }
+
+    @Override
+    public void reset() {
+        count.reset();
+        totalNanos.reset();
+        maxNanos.reset();
+        for (LongAdder bucket : buckets) {
+            bucket.reset();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: count=%d total=%.1fms mean=%.2fus p50=%.2fus p99=%.2fus max=%.2fus",
+                name, getCount(), getTotalMillis(), getMeanMicros(), getP50Micros(), getP99Micros(), getMaxMicros());
+    }
+}
@@ -0,0 +1,14 @@
+package com.ai.metrics;
+
+/**
+ * The view of a `Timer` exposed over JMX. Latencies are in microseconds.
+ */
+public interface TimerMXBean {
+    long getCount();
+    double getTotalMillis();
+    double getMeanMicros();
+    double getP50Micros();
+    double getP99Micros();
+    double getMaxMicros();
+    void reset();
+}
@@ -1,14 +1,25 @@
 package com.ai.model;
 
-import java.util.Objects;
-
 /**
  * An action that can be performed on a racetrack, consisting of
  * performing an acceleration in both the x and y direction from -1 to 1.
  */
 public class Action {
+    /* The number of valid actions, which are indexed from 0 to COUNT - 1 */
+    public static final int COUNT = 9;
+
+    /* The canonical instance of every valid action, by index */
+    private static final Action[] ACTIONS = new Action[COUNT];
+
+    static {
+        for (int index = 0; index < COUNT; index++) {
+            ACTIONS[index] = new Action(index / 3 - 1, index % 3 - 1);
+        }
+    }
+
     private final int xAcceleration;
     private final int yAcceleration;
+    private final int hash;
 
     /**
      * Make an action that tries to perform the specified accelerations.
@@ -19,6 +30,31 @@ public class Action {
     public Action(int xAcceleration, int yAcceleration) {
         this.xAcceleration = xAcceleration;
         this.yAcceleration = yAcceleration;
+        //the same hash as Objects.hash(xAcceleration, yAcceleration), without boxing
+        this.hash = 31 * (31 + xAcceleration) + yAcceleration;
+    }
+
+    /**
+     * Gives the canonical action with the given index.
+     *
+     * @param index the index of the action, from 0 to COUNT - 1
+     * @return the action with that index
+     */
+    public static Action fromIndex(int index) {
+        return ACTIONS[index];
+    }
+
+    /**
+     * Gives the action that tries to perform the specified accelerations, which is the
+     * canonical instance if the action is valid.
+     *
+     * @param xAcceleration the acceleration in the x direction
+     * @param yAcceleration the acceleration in the y direction
+     * @return the action
+     */
+    public static Action of(int xAcceleration, int yAcceleration) {
+        Action action = new Action(xAcceleration, yAcceleration);
+        return action.isValid() ? ACTIONS[action.index()] : action;
     }
 
     /**
@@ -44,13 +80,27 @@ public class Action {
                (-1 <= yAcceleration && yAcceleration <= 1);
     }
 
+    /**
+     * Gives a dense index for this action from 0 to COUNT - 1, assuming the action is valid.
+     *
+     * Actions are ordered by x-acceleration, then y-acceleration.
+     *
+     * @return this action's index
+     */
+    public int index() {
+        return (xAcceleration + 1) * 3 + yAcceleration + 1;
+    }
+
     @Override
     public int hashCode() {
-        return Objects.hash(xAcceleration, yAcceleration);
+        return hash;
     }
 
     @Override
     public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
         if (!(o instanceof Action)) {
             return false;
         }
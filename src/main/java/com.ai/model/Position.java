@@ -1,7 +1,5 @@
 package com.ai.model;
 
-import java.util.Objects;
-
 /**
  * An immutable position on a racetrack.
  * This is fundametally meaningless without a specific racetrack.
@@ -9,6 +7,7 @@ import java.util.Objects;
 public class Position {
     private final int x;
     private final int y;
+    private final int hash;
 
     /**
      * Makes a position at the given coordinates.
@@ -19,6 +18,8 @@ public class Position {
     public Position(int x, int y) {
         this.x = x;
         this.y = y;
+        //the same hash as Objects.hash(x, y), without boxing
+        this.hash = 31 * (31 + x) + y;
     }
 
     /**
@@ -41,11 +42,14 @@ public class Position {
 
     @Override
     public int hashCode() {
-        return Objects.hash(x, y);
+        return hash;
     }
 
     @Override
     public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
         if(!(o instanceof Position)) {
             return false;
         }
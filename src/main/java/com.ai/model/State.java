@@ -10,6 +10,7 @@ import java.util.Objects;
 public class State {
     private final Position position;
     private final Velocity velocity;
+    private final int hash;
 
     /**
      * Make a state for a given position and velocity
@@ -20,6 +21,7 @@ public class State {
     public State(Position position, Velocity velocity) {
         this.position = position;
         this.velocity = velocity;
+        this.hash = Objects.hash(position, velocity);
     }
 
     /**
@@ -42,11 +44,14 @@ public class State {
 
     @Override
     public int hashCode() {
-        return Objects.hash(position, velocity);
+        return hash;
     }
 
     @Override
     public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
         if(!(o instanceof State)) {
             return false;
         }
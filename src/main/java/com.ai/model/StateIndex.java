@@ -0,0 +1,185 @@
+package com.ai.model;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Encodes the (x, y, vx, vy) coordinates of a state on a racetrack of a given size as a single int.
+ *
+ * Velocities are assumed to be bounded between -MAX_SPEED and MAX_SPEED, as they are by `Velocity`.
+ *
+ * The index also hands out the canonical position and state objects for its racetrack, so the simulators
+ * and learners share one object per state instead of building a new one on every move. The objects are
+ * made the first time they are asked for. Threads racing to make the same one all get back the copy that
+ * was published first, so there is exactly one object per position and per state.
+ *
+ * The states are kept in a block per position, which is only allocated once a state at that position is
+ * asked for, so the states of a large racetrack only take up memory at the positions a race can reach.
+ */
+public class StateIndex {
+    public static final int MAX_SPEED = 5;
+    public static final int SPEEDS = 2 * MAX_SPEED + 1;
+    public static final int VELOCITIES = SPEEDS * SPEEDS;
+
+    private final int width;
+    private final int height;
+    private final AtomicReferenceArray<Position> positions;
+    private final AtomicReferenceArray<AtomicReferenceArray<State>> states;
+
+    /**
+     * Make an index for the states of a racetrack of the given size.
+     *
+     * @param width the width of the racetrack
+     * @param height the height of the racetrack
+     */
+    public StateIndex(int width, int height) {
+        if ((long)width * height * VELOCITIES > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("A " + width + "x" + height + " racetrack has too many states to index");
+        }
+        this.width = width;
+        this.height = height;
+        this.positions = new AtomicReferenceArray<>(width * height);
+        this.states = new AtomicReferenceArray<>(width * height);
+    }
+
+    /**
+     * Gives the number of distinct indices, which is one more than the largest index.
+     *
+     * @return the number of states that can be indexed
+     */
+    public int size() {
+        return width * height * VELOCITIES;
+    }
+
+    /**
+     * Determines whether the given coordinates describe a state on the racetrack.
+     *
+     * @param x the x-coordinate
+     * @param y the y-coordinate
+     * @param vx the x-component of the velocity
+     * @param vy the y-component of the velocity
+     * @return whether the coordinates can be indexed
+     */
+    public boolean contains(int x, int y, int vx, int vy) {
+        return 0 <= x && x < width && 0 <= y && y < height &&
+               -MAX_SPEED <= vx && vx <= MAX_SPEED && -MAX_SPEED <= vy && vy <= MAX_SPEED;
+    }
+
+    /**
+     * Gives the index of the state with the given coordinates.
+     *
+     * @param x the x-coordinate
+     * @param y the y-coordinate
+     * @param vx the x-component of the velocity
+     * @param vy the y-component of the velocity
+     * @return the state's index
+     */
+    public int index(int x, int y, int vx, int vy) {
+        return ((x * height + y) * SPEEDS + vx + MAX_SPEED) * SPEEDS + vy + MAX_SPEED;
+    }
+
+    /**
+     * Gives the index of the given state.
+     *
+     * @param state the state to index
+     * @return the state's index
+     */
+    public int index(State state) {
+        Position position = state.getPosition();
+        Velocity velocity = state.getVelocity();
+        return index(position.getX(), position.getY(), velocity.getX(), velocity.getY());
+    }
+
+    /**
+     * Gives the canonical state object for the given index.
+     *
+     * @param index the state's index
+     * @return the state at that index
+     */
+    public State state(int index) {
+        int cell = index / VELOCITIES;
+        AtomicReferenceArray<State> cellStates = states.get(cell);
+        if (cellStates == null) {
+            //keep whichever block was published first, so no thread's states get dropped
+            states.compareAndSet(cell, null, new AtomicReferenceArray<>(VELOCITIES));
+            cellStates = states.get(cell);
+        }
+
+        int slot = index % VELOCITIES;
+        State state = cellStates.get(slot);
+        if (state == null) {
+            cellStates.compareAndSet(slot, null, new State(position(x(index), y(index)), Velocity.of(vx(index), vy(index))));
+            state = cellStates.get(slot);
+        }
+        return state;
+    }
+
+    /**
+     * Gives the canonical state object with the given coordinates.
+     *
+     * @param x the x-coordinate
+     * @param y the y-coordinate
+     * @param vx the x-component of the velocity
+     * @param vy the y-component of the velocity
+     * @return the state
+     */
+    public State state(int x, int y, int vx, int vy) {
+        return state(index(x, y, vx, vy));
+    }
+
+    /**
+     * Gives the canonical position object with the given coordinates.
+     *
+     * @param x the x-coordinate
+     * @param y the y-coordinate
+     * @return the position
+     */
+    public Position position(int x, int y) {
+        int cell = x * height + y;
+        Position position = positions.get(cell);
+        if (position == null) {
+            positions.compareAndSet(cell, null, new Position(x, y));
+            position = positions.get(cell);
+        }
+        return position;
+    }
+
+    /**
+     * Gives the x-coordinate of the state at the given index.
+     *
+     * @param index the state's index
+     * @return the state's x-coordinate
+     */
+    public int x(int index) {
+        return index / (height * VELOCITIES);
+    }
+
+    /**
+     * Gives the y-coordinate of the state at the given index.
+     *
+     * @param index the state's index
+     * @return the state's y-coordinate
+     */
+    public int y(int index) {
+        return index / VELOCITIES % height;
+    }
+
+    /**
+     * Gives the x-component of the velocity of the state at the given index.
+     *
+     * @param index the state's index
+     * @return the state's x-velocity
+     */
+    public int vx(int index) {
+        return index / SPEEDS % SPEEDS - MAX_SPEED;
+    }
+
+    /**
+     * Gives the y-component of the velocity of the state at the given index.
+     *
+     * @param index the state's index
+     * @return the state's y-velocity
+     */
+    public int vy(int index) {
+        return index % SPEEDS - MAX_SPEED;
+    }
+}
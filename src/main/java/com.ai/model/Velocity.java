@@ -1,13 +1,23 @@
 package com.ai.model;
 
-import java.util.Objects;
-
 /**
  * An object for an agent's velocity in a particular state.
  */
 public class Velocity {
+    /* The canonical instance of every velocity, in the same order as `StateIndex` */
+    private static final Velocity[] VELOCITIES = new Velocity[StateIndex.VELOCITIES];
+
+    static {
+        for (int x = -StateIndex.MAX_SPEED; x <= StateIndex.MAX_SPEED; x++) {
+            for (int y = -StateIndex.MAX_SPEED; y <= StateIndex.MAX_SPEED; y++) {
+                VELOCITIES[(x + StateIndex.MAX_SPEED) * StateIndex.SPEEDS + y + StateIndex.MAX_SPEED] = new Velocity(x, y);
+            }
+        }
+    }
+
     private final int x;
     private final int y;
+    private final int hash;
 
     /**
      * Make a velocity vector from x- and y-components.
@@ -19,6 +29,21 @@ public class Velocity {
         //bound the velocity between -5 and 5
         this.x = Math.max(-5, Math.min(x, 5));
         this.y = Math.max(-5, Math.min(y, 5));
+        //the same hash as Objects.hash(x, y), without boxing
+        this.hash = 31 * (31 + this.x) + this.y;
+    }
+
+    /**
+     * Gives the canonical velocity vector with the given components, bounded like the constructor.
+     *
+     * @param x the x-component of the velocity
+     * @param y the y-component of the velocity
+     * @return the velocity
+     */
+    public static Velocity of(int x, int y) {
+        x = Math.max(-StateIndex.MAX_SPEED, Math.min(x, StateIndex.MAX_SPEED));
+        y = Math.max(-StateIndex.MAX_SPEED, Math.min(y, StateIndex.MAX_SPEED));
+        return VELOCITIES[(x + StateIndex.MAX_SPEED) * StateIndex.SPEEDS + y + StateIndex.MAX_SPEED];
     }
 
     /**
@@ -41,11 +66,14 @@ public class Velocity {
 
     @Override
     public int hashCode() {
-        return Objects.hash(x, y);
+        return hash;
     }
 
     @Override
     public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
         if (!(o instanceof Velocity)) {
             return false;
         }
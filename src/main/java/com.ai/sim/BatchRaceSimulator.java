@@ -0,0 +1,96 @@
+package com.ai.sim;
+
+import com.ai.Policy;
+import com.ai.RandomSource;
+import com.ai.Racetrack;
+import com.ai.model.Position;
+
+/**
+ * An object for simulating many races at once with a deterministic policy, straight from the compiled
+ * transitions of the racetrack MDP.
+ *
+ * The policy is first turned into a table of action indices, one per transition table id. Every agent is
+ * then just the id of the state it is in, so a batch of races is advanced a move at a time over a single
+ * int buffer, without building any states or asking the policy for anything. Agents are dropped from the
+ * buffer as they cross the finish line.
+ */
+public class BatchRaceSimulator {
+    private final Racetrack racetrack;
+    private final TransitionTable transitions;
+    private final int iterationLimit;
+
+    /**
+     * Makes a batch race simulator for running races over the given transitions.
+     *
+     * @param racetrack the racetrack to run on
+     * @param transitions the compiled transitions of the racetrack's MDP
+     * @param iterationLimit the number of moves after which a race is stopped
+     */
+    public BatchRaceSimulator(Racetrack racetrack, TransitionTable transitions, int iterationLimit) {
+        this.racetrack = racetrack;
+        this.transitions = transitions;
+        this.iterationLimit = iterationLimit;
+    }
+
+    /**
+     * Gives the action index the given policy chooses in every state.
+     *
+     * The policy must be deterministic, since each state is only asked about once.
+     *
+     * @param policy the policy to tabulate
+     * @return the policy's action index for each transition table id
+     */
+    public byte[] actionTable(Policy policy) {
+        byte[] actions = new byte[transitions.size()];
+        for (int id = 0; id < actions.length; id++) {
+            int action = policy.actionIndex(transitions.x(id), transitions.y(id), transitions.vx(id), transitions.vy(id));
+            if (action == -1) {
+                throw new IllegalArgumentException("The policy has no action for " + transitions.state(id));
+            }
+            actions[id] = (byte)action;
+        }
+        return actions;
+    }
+
+    /**
+     * Runs a batch of races with the given action table, each from a random starting position,
+     * until they either reach the finish line or hit the iteration limit.
+     *
+     * @param actions the action index to take in each state, from `actionTable`
+     * @param races the number of races to run
+     * @param random the random source to draw from
+     * @return the total cost (number of moves) of each race, which is the iteration limit for races that didn't finish
+     */
+    public int[] runPolicy(byte[] actions, int races, RandomSource random) {
+        int[] costs = new int[races];
+        int[] states = new int[races];
+        int[] racing = new int[races];
+
+        for (int race = 0; race < races; race++) {
+            Position start = racetrack.randomStartingPosition(random);
+            states[race] = transitions.id(start.getX(), start.getY(), 0, 0);
+            racing[race] = race;
+        }
+
+        int active = races;
+        for (int cost = 1; cost <= iterationLimit && active > 0; cost++) {
+            for (int i = 0; i < active; i++) {
+                int race = racing[i];
+                int next = transitions.sample(states[race], actions[states[race]], random.nextDouble());
+
+                if (next == TransitionTable.TERMINAL) {
+                    costs[race] = cost;
+                    //drop the race by moving the last active race into its place
+                    racing[i--] = racing[--active];
+                } else {
+                    states[race] = next;
+                }
+            }
+        }
+
+        for (int i = 0; i < active; i++) {
+            costs[racing[i]] = iterationLimit;
+        }
+        return costs;
+    }
+}
@@ -3,6 +3,7 @@ package com.ai.sim;
 import com.ai.Racetrack;
 import com.ai.model.Position;
 import com.ai.model.State;
+import com.ai.model.StateIndex;
 import com.ai.model.Velocity;
 
 /**
@@ -13,8 +14,36 @@ public class Collision {
      *   STOP    - stop moving when you hit a wall
      *   RESTART - stop moving and go back to the track's start when you hit a wall
      */
-    public static final CollisionModel STOP = new StopCollisionModel();
-    public static final CollisionModel RESTART = new RestartCollisionModel();
+    public static final CollisionModel STOP = new StopCollisionModel(CollisionEngine.FLOATING_POINT);
+    public static final CollisionModel RESTART = new RestartCollisionModel(CollisionEngine.FLOATING_POINT);
+
+    /* The same models tracing with the integer engine, kept as single instances since compiled MDPs are shared per model */
+    private static final CollisionModel INTEGER_STOP = new StopCollisionModel(CollisionEngine.INTEGER);
+    private static final CollisionModel INTEGER_RESTART = new RestartCollisionModel(CollisionEngine.INTEGER);
+
+    /**
+     * Gives the stop collision model, tracing moves with the given collision engine.
+     *
+     * There is one model per engine, so asking twice gives the same model.
+     *
+     * @param engine the collision engine to trace moves with
+     * @return the stop collision model
+     */
+    public static CollisionModel stop(CollisionEngine engine) {
+        return engine == CollisionEngine.FLOATING_POINT ? STOP : INTEGER_STOP;
+    }
+
+    /**
+     * Gives the restart collision model, tracing moves with the given collision engine.
+     *
+     * There is one model per engine, so asking twice gives the same model.
+     *
+     * @param engine the collision engine to trace moves with
+     * @return the restart collision model
+     */
+    public static CollisionModel restart(CollisionEngine engine) {
+        return engine == CollisionEngine.FLOATING_POINT ? RESTART : INTEGER_RESTART;
+    }
 
     /**
      * Performs collision pathing, following a move from a given position.
@@ -61,7 +90,7 @@ public class Collision {
 
             //treat reaching the finish line as a special case so
             //it isn't mistaken as a collision
-            if(racetrack.finishLine().contains(currentPosition)) {
+            if(racetrack.isFinish(currentPosition)) {
                 return null;
             }
 
@@ -82,31 +111,24 @@ public class Collision {
      * @param y the agent's y-position at this step
      */
     private static Position checkPositions(Racetrack racetrack, Velocity velocity, double x, double y) {
+        int wholeX = asWholeNumber(x);
+        int wholeY = asWholeNumber(y);
         if (isWholeNumber(x)) {
-            Position leftPosition = new Position(asWholeNumber(x) - 1, asWholeNumber(y));
-            Position rightPosition = new Position(asWholeNumber(x), asWholeNumber(y));
-
-            if (racetrack.isSafe(leftPosition) && racetrack.isSafe(rightPosition)) {
+            if (racetrack.isSafe(wholeX - 1, wholeY) && racetrack.isSafe(wholeX, wholeY)) {
                 if (velocity.getX() < 0) {
-                    return leftPosition;
+                    return new Position(wholeX - 1, wholeY);
                 }
-                return rightPosition;
+                return new Position(wholeX, wholeY);
             }
         } else if (isWholeNumber(y)) {
-            Position bottomPosition = new Position(asWholeNumber(x), asWholeNumber(y) - 1);
-            Position topPosition = new Position(asWholeNumber(x), asWholeNumber(y));
-
-            if (racetrack.isSafe(bottomPosition) && racetrack.isSafe(topPosition)) {
+            if (racetrack.isSafe(wholeX, wholeY - 1) && racetrack.isSafe(wholeX, wholeY)) {
                 if (velocity.getY() < 0) {
-                    return bottomPosition;
+                    return new Position(wholeX, wholeY - 1);
                 }
-                return topPosition;
-            }
-        } else {
-            Position currentPosition = new Position(asWholeNumber(x), asWholeNumber(y));
-            if (racetrack.isSafe(currentPosition)) {
-                return currentPosition;
+                return new Position(wholeX, wholeY);
             }
+        } else if (racetrack.isSafe(wholeX, wholeY)) {
+            return new Position(wholeX, wholeY);
         }
         return null;
     }
@@ -145,20 +167,26 @@ public class Collision {
  * The collision model that stops moving when a wall is hit.
  */
 class StopCollisionModel implements CollisionModel {
+    private final CollisionEngine engine;
+
+    StopCollisionModel(CollisionEngine engine) {
+        this.engine = engine;
+    }
+
     public State getNextState(Racetrack racetrack, Position position, Velocity velocity) {
-        Position collisionPosition = Collision.followMove(racetrack, position, velocity);
-        Position endPosition = new Position(position.getX() + velocity.getX(),
-                                            position.getY() + velocity.getY());
+        int result = CollisionCache.forTrack(racetrack, engine).trace(racetrack, position.getX(), position.getY(), velocity.getX(), velocity.getY());
 
-        if (endPosition.equals(collisionPosition)) {
-            return new State(endPosition, velocity);
+        if (CollisionEngine.finished(result)) {
+            return null;
         }
 
-        if (collisionPosition == null) {
-            return null;
+        StateIndex stateIndex = racetrack.getStateIndex();
+        if (!CollisionEngine.collided(result)) {
+            return stateIndex.state(position.getX() + velocity.getX(), position.getY() + velocity.getY(),
+                                    velocity.getX(), velocity.getY());
         }
 
-        return new State(collisionPosition, new Velocity(0, 0));
+        return stateIndex.state(CollisionEngine.x(result), CollisionEngine.y(result), 0, 0);
     }
 
     @Override
@@ -171,20 +199,27 @@ class StopCollisionModel implements CollisionModel {
  * The collision model that returns to the start when a wall is hit.
  */
 class RestartCollisionModel implements CollisionModel {
+    private final CollisionEngine engine;
+
+    RestartCollisionModel(CollisionEngine engine) {
+        this.engine = engine;
+    }
+
     public State getNextState(Racetrack racetrack, Position position, Velocity velocity) {
-        Position collisionPosition = Collision.followMove(racetrack, position, velocity);
-        Position endPosition = new Position(position.getX() + velocity.getX(),
-                                            position.getY() + velocity.getY());
+        int result = CollisionCache.forTrack(racetrack, engine).trace(racetrack, position.getX(), position.getY(), velocity.getX(), velocity.getY());
 
-        if (endPosition.equals(collisionPosition)) {
-            return new State(endPosition, velocity);
+        if (CollisionEngine.finished(result)) {
+            return null;
         }
 
-        if (collisionPosition == null) {
-            return null;
+        StateIndex stateIndex = racetrack.getStateIndex();
+        if (!CollisionEngine.collided(result)) {
+            return stateIndex.state(position.getX() + velocity.getX(), position.getY() + velocity.getY(),
+                                    velocity.getX(), velocity.getY());
         }
 
-        return new State(racetrack.startingLine().iterator().next(), new Velocity(0, 0));
+        Position start = racetrack.startingLine().iterator().next();
+        return stateIndex.state(start.getX(), start.getY(), 0, 0);
     }
 
     @Override
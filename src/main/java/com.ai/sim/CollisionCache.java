@@ -0,0 +1,105 @@
+package com.ai.sim;
+
+import com.ai.Racetrack;
+import com.ai.metrics.Counter;
+import com.ai.metrics.Instrumentation;
+import com.ai.metrics.Timer;
+import com.ai.model.StateIndex;
+import com.google.common.collect.MapMaker;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A lazily filled cache of collision pathing results for a single racetrack and collision engine,
+ * keyed by (x, y, vx, vy).
+ *
+ * Each result is packed into an int by the collision engine (see `CollisionEngine`). The results for a
+ * position are only allocated once a move from that position is traced.
+ *
+ * Tracing is deterministic, so threads racing to fill the same entry all write the same value and
+ * the cache needs no locking. The cache doesn't hold on to its racetrack, which is passed to every
+ * `trace` instead, so the racetrack and its cache can be dropped together.
+ */
+class CollisionCache {
+    /* The caches for every racetrack and engine, which are dropped along with their racetrack */
+    private static final Map<CollisionEngine, ConcurrentMap<Racetrack, CollisionCache>> caches = new EnumMap<>(CollisionEngine.class);
+
+    private static final Counter HITS = Instrumentation.counter("collision.cacheHits");
+
+    static {
+        for (CollisionEngine engine : CollisionEngine.values()) {
+            caches.put(engine, new MapMaker().weakKeys().makeMap());
+        }
+    }
+
+    private final CollisionEngine engine;
+    private final int width;
+    private final int height;
+    private final int[][] results;
+    private final Timer traceTimer;
+
+    private CollisionCache(Racetrack racetrack, CollisionEngine engine) {
+        this.engine = engine;
+        this.width = racetrack.getWidth();
+        this.height = racetrack.getHeight();
+        this.results = new int[racetrack.getWidth() * racetrack.getHeight()][];
+        this.traceTimer = Instrumentation.timer("collision.trace." + engine.name().toLowerCase());
+    }
+
+    /**
+     * Gives the collision cache for the given racetrack and engine, making it if needed.
+     *
+     * The racetrack must fit in the coordinates of a packed result (see `CollisionEngine`).
+     *
+     * @param racetrack the racetrack to cache collisions on
+     * @param engine the collision engine to trace moves with
+     * @return the racetrack's collision cache
+     * @throws IllegalArgumentException if the racetrack is too large to trace moves on
+     */
+    static CollisionCache forTrack(Racetrack racetrack, CollisionEngine engine) {
+        if (racetrack.getWidth() > CollisionEngine.MAX_COORDINATE + 1 || racetrack.getHeight() > CollisionEngine.MAX_COORDINATE + 1) {
+            throw new IllegalArgumentException("A " + racetrack.getWidth() + "x" + racetrack.getHeight() + " racetrack is too large to trace moves on");
+        }
+        return caches.get(engine).computeIfAbsent(racetrack, track -> new CollisionCache(track, engine));
+    }
+
+    /**
+     * Gives the packed result of following a move from the given position with the given velocity,
+     * tracing it with the collision engine if it hasn't been traced yet.
+     *
+     * The starting position must be on the racetrack.
+     *
+     * @param racetrack the racetrack the cache was made for
+     * @param x the x-coordinate of the starting position
+     * @param y the y-coordinate of the starting position
+     * @param vx the x-component of the velocity
+     * @param vy the y-component of the velocity
+     * @return the packed result of the move
+     * @throws IllegalArgumentException if the starting position is off the racetrack
+     */
+    int trace(Racetrack racetrack, int x, int y, int vx, int vy) {
+        if (x < 0 || x >= width || y < 0 || y >= height) {
+            throw new IllegalArgumentException("Can't trace a move from (" + x + ", " + y + "), which is off the racetrack");
+        }
+        int cell = x * height + y;
+        int[] cellResults = results[cell];
+        if (cellResults == null) {
+            cellResults = new int[StateIndex.VELOCITIES];
+            results[cell] = cellResults;
+        }
+
+        int velocity = (vx + StateIndex.MAX_SPEED) * StateIndex.SPEEDS + vy + StateIndex.MAX_SPEED;
+        int result = cellResults[velocity];
+        if (result == 0) {
+            long start = traceTimer.start();
+            result = engine.trace(racetrack, x, y, vx, vy);
+            traceTimer.stop(start);
+            cellResults[velocity] = result;
+        } else {
+            HITS.increment();
+        }
+        return result;
+    }
+}
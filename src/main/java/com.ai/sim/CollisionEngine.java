@@ -0,0 +1,159 @@
+package com.ai.sim;
+
+import com.ai.Racetrack;
+import com.ai.model.Position;
+import com.ai.model.Velocity;
+
+/**
+ * The ways of following a move across a racetrack to find where the agent ends up.
+ *
+ *   FLOATING_POINT - `Collision.followMove`, which steps along the move with doubles
+ *   INTEGER        - an integer-only DDA over the same sample points, with no allocation
+ *
+ * Both give exactly the same results. The result of a move is packed into an int: whether it was
+ * traced, whether it crossed the finish line, whether it hit a wall and the cell it ended up in. The
+ * cell takes 14 bits per coordinate, so moves can only be traced on racetracks up to MAX_COORDINATE + 1
+ * cells wide and tall.
+ */
+public enum CollisionEngine {
+    FLOATING_POINT {
+        @Override
+        public int trace(Racetrack racetrack, int x, int y, int vx, int vy) {
+            Position endPosition = Collision.followMove(racetrack, new Position(x, y), new Velocity(vx, vy));
+            if (endPosition == null) {
+                return TRACED | FINISHED;
+            }
+            return pack(endPosition.getX(), endPosition.getY(), x + vx, y + vy);
+        }
+    },
+    INTEGER {
+        /**
+         * Follows the same sample points as `Collision.followMove` using only integers.
+         *
+         * The agent starts in the center of its cell and takes one step per cell along the axis it is
+         * moving most in (the major axis). After k of the n steps, the minor coordinate is
+         * minor + (n + 2km) / 2n for a minor velocity of m, so it sits exactly on a cell boundary when
+         * 2n divides n + 2km. On a boundary, the cells on both sides must be safe and the agent is placed
+         * in the one it is moving towards, just like `Collision.checkPositions`.
+         */
+        @Override
+        public int trace(Racetrack racetrack, int x, int y, int vx, int vy) {
+            boolean xMajor = Math.abs(vx) > Math.abs(vy);
+            int steps = xMajor ? Math.abs(vx) : Math.abs(vy);
+            int majorStep = xMajor ? Integer.signum(vx) : Integer.signum(vy);
+            int minorVelocity = xMajor ? vy : vx;
+            int major = xMajor ? x : y;
+            int minor = xMajor ? y : x;
+
+            int lastMajor = major;
+            int lastMinor = minor;
+            int denominator = 2 * steps;
+            for (int k = 1; k <= steps; k++) {
+                int currentMajor = major + k * majorStep;
+                int numerator = steps + 2 * k * minorVelocity;
+                int currentMinor = minor + Math.floorDiv(numerator, denominator);
+
+                if (Math.floorMod(numerator, denominator) == 0) {
+                    //on the boundary between currentMinor - 1 and currentMinor
+                    if (!isSafe(racetrack, xMajor, currentMajor, currentMinor - 1) ||
+                        !isSafe(racetrack, xMajor, currentMajor, currentMinor)) {
+                        break;
+                    }
+                    if (minorVelocity < 0) {
+                        currentMinor--;
+                    }
+                } else if (!isSafe(racetrack, xMajor, currentMajor, currentMinor)) {
+                    break;
+                }
+
+                //treat reaching the finish line as a special case so
+                //it isn't mistaken as a collision
+                if (xMajor ? racetrack.isFinish(currentMajor, currentMinor) : racetrack.isFinish(currentMinor, currentMajor)) {
+                    return TRACED | FINISHED;
+                }
+
+                lastMajor = currentMajor;
+                lastMinor = currentMinor;
+            }
+
+            if (xMajor) {
+                return pack(lastMajor, lastMinor, x + vx, y + vy);
+            }
+            return pack(lastMinor, lastMajor, x + vx, y + vy);
+        }
+
+        private boolean isSafe(Racetrack racetrack, boolean xMajor, int major, int minor) {
+            return xMajor ? racetrack.isSafe(major, minor) : racetrack.isSafe(minor, major);
+        }
+    };
+
+    private static final int TRACED = 1;
+    private static final int FINISHED = 2;
+    private static final int COLLIDED = 4;
+    private static final int X_SHIFT = 3;
+    private static final int Y_SHIFT = 17;
+    private static final int COORDINATE_MASK = (1 << 14) - 1;
+
+    /* The largest coordinate a packed result can hold */
+    static final int MAX_COORDINATE = COORDINATE_MASK;
+
+    /**
+     * Follows a move from the given position with the given velocity.
+     *
+     * @param racetrack the racetrack to path on
+     * @param x the x-coordinate of the starting position
+     * @param y the y-coordinate of the starting position
+     * @param vx the x-component of the velocity
+     * @param vy the y-component of the velocity
+     * @return the packed result of the move, which is never 0
+     */
+    public abstract int trace(Racetrack racetrack, int x, int y, int vx, int vy);
+
+    private static int pack(int x, int y, int endX, int endY) {
+        int result = TRACED | x << X_SHIFT | y << Y_SHIFT;
+        if (x != endX || y != endY) {
+            result |= COLLIDED;
+        }
+        return result;
+    }
+
+    /**
+     * Determines whether a traced move crossed the finish line.
+     *
+     * @param result the packed result of the move
+     * @return whether the move crossed the finish line
+     */
+    public static boolean finished(int result) {
+        return (result & FINISHED) != 0;
+    }
+
+    /**
+     * Determines whether a traced move hit a wall before reaching its end position.
+     *
+     * @param result the packed result of the move
+     * @return whether the move collided
+     */
+    public static boolean collided(int result) {
+        return (result & COLLIDED) != 0;
+    }
+
+    /**
+     * Gives the x-coordinate of the cell a traced move ended up in.
+     *
+     * @param result the packed result of the move, which must not have finished
+     * @return the x-coordinate the move ended at
+     */
+    public static int x(int result) {
+        return result >>> X_SHIFT & COORDINATE_MASK;
+    }
+
+    /**
+     * Gives the y-coordinate of the cell a traced move ended up in.
+     *
+     * @param result the packed result of the move, which must not have finished
+     * @return the y-coordinate the move ended at
+     */
+    public static int y(int result) {
+        return result >>> Y_SHIFT & COORDINATE_MASK;
+    }
+}
@@ -0,0 +1,163 @@
+package com.ai.sim;
+
+import com.ai.Racetrack;
+import com.ai.io.TransitionCache;
+import com.ai.model.Action;
+import com.ai.model.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * The racetrack MDP, answered from a precompiled transition table instead of pathing collisions
+ * on every lookup.
+ *
+ * Only the states reachable from the starting line are compiled; other states and invalid actions
+ * fall back to the regular racetrack MDP.
+ *
+ * If a transition cache is in use, the transitions are loaded from it rather than compiled.
+ *
+ * The MDP never changes once compiled, so every learner and policy tester on the same racetrack and
+ * collision model shares one (see `forTrack`), rather than each compiling and holding its own copy.
+ */
+public class CompiledRacetrackMDP implements MDP {
+    private static volatile TransitionCache transitionCache;
+
+    private final MDP racetrackMDP;
+    private final TransitionTable transitionTable;
+
+    /**
+     * Loads the transitions of every MDP compiled from now on from the given cache, which saves any
+     * it has to compile.
+     *
+     * @param cache the transition cache to use, or null to always compile
+     */
+    public static void useCache(TransitionCache cache) {
+        transitionCache = cache;
+    }
+
+    /**
+     * Gives the shared MDP for the given racetrack and collision model, compiling it if needed.
+     *
+     * Each MDP is compiled at most once. Threads asking for one that is being compiled wait for it,
+     * while MDPs for other racetracks and collision models are compiled at the same time. The shared MDPs
+     * are kept by their racetrack (see `Racetrack.derived`), since each one refers back to its racetrack,
+     * so they are dropped along with it.
+     *
+     * @param racetrack the MDP's racetrack
+     * @param collisionModel the MDP's collision model
+     * @return the compiled MDP
+     */
+    public static CompiledRacetrackMDP forTrack(Racetrack racetrack, CollisionModel collisionModel) {
+        ConcurrentMap<CollisionModel, FutureTask<CompiledRacetrackMDP>> models =
+                racetrack.derived(CompiledRacetrackMDP.class, ConcurrentHashMap::new);
+
+        FutureTask<CompiledRacetrackMDP> compile = models.get(collisionModel);
+        if (compile == null) {
+            FutureTask<CompiledRacetrackMDP> newCompile = new FutureTask<>(() -> new CompiledRacetrackMDP(racetrack, collisionModel));
+            compile = models.putIfAbsent(collisionModel, newCompile);
+            if (compile == null) {
+                compile = newCompile;
+                compile.run();
+            }
+        }
+
+        try {
+            return compile.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for " + racetrack + " to compile", e);
+        } catch (ExecutionException e) {
+            //let the next caller try again
+            models.remove(collisionModel, compile);
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Compiles the MDP for the given racetrack and collision model.
+     *
+     * Use `forTrack` to share the MDP instead of compiling another copy.
+     *
+     * @param racetrack the MDP's racetrack
+     * @param collisionModel the MDP's collision model
+     */
+    public CompiledRacetrackMDP(Racetrack racetrack, CollisionModel collisionModel) {
+        this.racetrackMDP = new RacetrackMDP(racetrack, collisionModel);
+        TransitionTable transitions;
+        TransitionCache cache = transitionCache;
+        if (cache != null) {
+            transitions = cache.get(racetrack, collisionModel);
+        } else {
+            transitions = new TransitionTable(racetrackMDP, new ReachableStates(racetrack, collisionModel));
+        }
+        this.transitionTable = transitions;
+    }
+
+    /**
+     * Gives the compiled transitions backing this MDP.
+     *
+     * @return the transition table
+     */
+    public TransitionTable getTransitionTable() {
+        return transitionTable;
+    }
+
+    /**
+     * Gets the potential states that follow performing the given action in the given state, and
+     * the probability of each potential state.
+     *
+     * Potential states that end up in the same place are merged into one.
+     *
+     * @param state the current state
+     * @param action the current action
+     * @return the states that can potentially follow the curent state after performing the action
+     */
+    public List<PotentialState> getNextStates(State state, Action action) {
+        int id = transitionTable.id(state);
+        if (id == -1 || !action.isValid()) {
+            return racetrackMDP.getNextStates(state, action);
+        }
+
+        List<PotentialState> nextStates = new ArrayList<>(2);
+        int end = transitionTable.rowEnd(id, action.index());
+        for (int entry = transitionTable.rowStart(id, action.index()); entry < end; entry++) {
+            int successor = transitionTable.successor(entry);
+            State nextState = successor == TransitionTable.TERMINAL ? null : transitionTable.state(successor);
+            nextStates.add(new PotentialState(nextState, transitionTable.probability(entry)));
+        }
+        return nextStates;
+    }
+
+    /**
+     * Chooses the state that follows performing the given action in the given state, straight from
+     * the compiled row (see `TransitionTable.sample`) without building the potential states. Decision
+     * numbers within float precision of a boundary between successors can choose differently than
+     * `RacetrackMDP.sample` does.
+     *
+     * @param state the current state
+     * @param action the current action
+     * @param decisionNum a random number uniformly drawn from [0, 1)
+     * @return the chosen state
+     */
+    @Override
+    public State sample(State state, Action action, double decisionNum) {
+        int id = transitionTable.id(state);
+        if (id == -1 || !action.isValid()) {
+            return racetrackMDP.sample(state, action, decisionNum);
+        }
+
+        int successor = transitionTable.sample(id, action.index(), decisionNum);
+        return successor == TransitionTable.TERMINAL ? null : transitionTable.state(successor);
+    }
+}
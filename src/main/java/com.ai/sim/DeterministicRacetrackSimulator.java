@@ -35,8 +35,8 @@ public class DeterministicRacetrackSimulator implements ActionSimulator {
      */
     public State getNextState(State state, Action action) {
         Velocity prevVelocity = state.getVelocity();
-        Velocity nextVelocity = new Velocity(prevVelocity.getX() + action.getXAcceleration(),
-                                             prevVelocity.getY() + action.getYAcceleration());
+        Velocity nextVelocity = Velocity.of(prevVelocity.getX() + action.getXAcceleration(),
+                                            prevVelocity.getY() + action.getYAcceleration());
 
         return collisionModel.getNextState(racetrack, state.getPosition(), nextVelocity);
     }
@@ -0,0 +1,80 @@
+package com.ai.sim;
+
+import com.ai.model.Action;
+
+import java.util.Arrays;
+
+/**
+ * The fewest moves needed to cross the finish line from every compiled state.
+ *
+ * Found with a breadth-first search backwards from the finish line over the compiled transitions, treating
+ * every transition with a non-zero probability as one the agent can choose. Since the agent can never do
+ * better than the luckiest outcomes, this never overestimates the number of moves, so it is an admissible
+ * heuristic for planners.
+ */
+public class DistanceToFinish {
+    public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    private final int[] distance;
+
+    /**
+     * Finds the distance to the finish line from every state in the given transition table.
+     *
+     * @param transitions the transitions to search
+     * @param predecessors the predecessors of every state in the transition table
+     */
+    public DistanceToFinish(TransitionTable transitions, PredecessorIndex predecessors) {
+        distance = new int[transitions.size()];
+        Arrays.fill(distance, UNREACHABLE);
+
+        //the finish line is one move away from any state with a transition across it
+        int[] queue = new int[transitions.size()];
+        int tail = 0;
+        for (int id = 0; id < transitions.size(); id++) {
+            for (int entry = transitions.rowStart(id, 0); entry < transitions.rowEnd(id, Action.COUNT - 1); entry++) {
+                if (transitions.successor(entry) == TransitionTable.TERMINAL) {
+                    distance[id] = 1;
+                    queue[tail++] = id;
+                    break;
+                }
+            }
+        }
+
+        for (int head = 0; head < tail; head++) {
+            int id = queue[head];
+            for (int entry = predecessors.start(id); entry < predecessors.end(id); entry++) {
+                int predecessor = predecessors.predecessor(entry);
+                if (distance[predecessor] == UNREACHABLE) {
+                    distance[predecessor] = distance[id] + 1;
+                    queue[tail++] = predecessor;
+                }
+            }
+        }
+    }
+
+    /**
+     * Gives the fewest moves needed to cross the finish line from a state.
+     *
+     * @param id the id of the state
+     * @return the number of moves, or UNREACHABLE if the finish line cannot be reached
+     */
+    public int distance(int id) {
+        return distance[id];
+    }
+
+    /**
+     * Gives the discounted utility of finishing in the fewest moves from a state, where every move costs 1.
+     *
+     * This is -(1 + gamma + ... + gamma^(distance - 1)), and never finishing is worth -1 / (1 - gamma).
+     *
+     * @param id the id of the state
+     * @param gamma the discount factor
+     * @return the state's utility if the agent finished in as few moves as possible
+     */
+    public double utility(int id, double gamma) {
+        if (distance[id] == UNREACHABLE) {
+            return -1 / (1 - gamma);
+        }
+        return -(1 - Math.pow(gamma, distance[id])) / (1 - gamma);
+    }
+}
@@ -14,4 +14,33 @@ import com.ai.model.State;
  */
 public interface MDP {
     public List<PotentialState> getNextStates(State state, Action action);
+
+    /**
+     * Chooses one of the states that can follow performing the given action in the given state,
+     * weighted on each potential state's probability.
+     *
+     * The potential states are walked in order, subtracting each probability from the decision number,
+     * and the first one that brings it to 0 is chosen. MDPs that can draw the outcome before working out
+     * where it leads should override this to only work out the chosen outcome, choosing the same state.
+     *
+     * @param state the current state
+     * @param action the current action
+     * @param decisionNum a random number uniformly drawn from [0, 1)
+     * @return the chosen state
+     */
+    public default State sample(State state, Action action, double decisionNum) {
+        List<PotentialState> potentialStates = getNextStates(state, action);
+        for (PotentialState potentialState : potentialStates) {
+            decisionNum -= potentialState.getProbability();
+            if (decisionNum <= 0.0) {
+                return potentialState.getState();
+            }
+        }
+
+        //Assume floating-point error, so the random number was
+        //between the sum of the probabilities of the potential
+        //states (which should be one w/o floating point error) and one
+        //This indicates the last state should be picked
+        return potentialStates.get(potentialStates.size() - 1).getState();
+    }
 }
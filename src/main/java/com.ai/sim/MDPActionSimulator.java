@@ -1,10 +1,9 @@
 package com.ai.sim;
 
+import com.ai.RandomSource;
 import com.ai.model.Action;
 import com.ai.model.State;
 
-import java.util.List;
-
 /**
  * A simulator for simulating the non-deterministic results of actions on a MDP.
  */
@@ -27,20 +26,22 @@ public class MDPActionSimulator implements ActionSimulator {
      * @return the next state
      */
     public State getNextState(State state, Action action) {
-        List<PotentialState> potentialStates = mdp.getNextStates(state, action);
-        double decisionNum = Math.random();
-
-        for (PotentialState potentialState : potentialStates) {
-            decisionNum -= potentialState.getProbability();
-            if (decisionNum <= 0.0) {
-                return potentialState.getState();
-            }
-        }
+        return getNextState(state, action, RandomSource.threadLocal());
+    }
 
-        //Assume floating-point error, so the random number was
-        //between the sum of the probabilities of the potential
-        //states (which should be one w/o floating point error) and one
-        //This indicates the last state should be picked
-        return potentialStates.get(potentialStates.size() - 1).getState();
+    /**
+     * Determines the next state from a given state and action, drawing the outcome
+     * from the given random source.
+     *
+     * The outcome is drawn before the MDP works out where it leads (see `MDP.sample`),
+     * so only the chosen outcome is simulated.
+     *
+     * @param state the prev state
+     * @param action the prev action
+     * @param random the random source to draw from
+     * @return the next state
+     */
+    public State getNextState(State state, Action action, RandomSource random) {
+        return mdp.sample(state, action, random.nextDouble());
     }
 }
@@ -0,0 +1,118 @@
+package com.ai.sim;
+
+import com.ai.model.Action;
+
+import java.util.Arrays;
+
+/**
+ * The reverse of a transition table: for every compiled state, the states that can transition into it.
+ *
+ * Predecessors are stored in compressed sparse row form; the entries from `start(id)` up to `end(id)` hold
+ * the distinct predecessors of a state, along with the largest probability of reaching the state from that
+ * predecessor with a single action.
+ */
+public class PredecessorIndex {
+    private final int[] start;
+    private final int[] predecessors;
+    private final float[] weights;
+
+    /**
+     * Build the predecessors of every state in the given transition table.
+     *
+     * @param transitions the transitions to reverse
+     */
+    public PredecessorIndex(TransitionTable transitions) {
+        int size = transitions.size();
+
+        //count the candidate predecessors of each state
+        start = new int[size + 1];
+        for (int id = 0; id < size; id++) {
+            for (int entry = transitions.rowStart(id, 0); entry < transitions.rowEnd(id, Action.COUNT - 1); entry++) {
+                int successor = transitions.successor(entry);
+                if (successor != TransitionTable.TERMINAL) {
+                    start[successor + 1]++;
+                }
+            }
+        }
+        for (int id = 0; id < size; id++) {
+            start[id + 1] += start[id];
+        }
+
+        //fill them in, keeping each predecessor once with its most likely transition
+        int[] candidates = new int[start[size]];
+        float[] candidateWeights = new float[start[size]];
+        int[] filled = Arrays.copyOf(start, size);
+        for (int id = 0; id < size; id++) {
+            for (int entry = transitions.rowStart(id, 0); entry < transitions.rowEnd(id, Action.COUNT - 1); entry++) {
+                int successor = transitions.successor(entry);
+                if (successor == TransitionTable.TERMINAL) {
+                    continue;
+                }
+
+                int previous = filled[successor] - 1;
+                if (previous >= start[successor] && candidates[previous] == id) {
+                    candidateWeights[previous] = Math.max(candidateWeights[previous], transitions.probability(entry));
+                } else {
+                    candidates[filled[successor]] = id;
+                    candidateWeights[filled[successor]] = transitions.probability(entry);
+                    filled[successor]++;
+                }
+            }
+        }
+
+        //compact away the space left by duplicates
+        int entries = 0;
+        for (int id = 0; id < size; id++) {
+            int from = start[id];
+            start[id] = entries;
+            for (int candidate = from; candidate < filled[id]; candidate++) {
+                candidates[entries] = candidates[candidate];
+                candidateWeights[entries] = candidateWeights[candidate];
+                entries++;
+            }
+        }
+        start[size] = entries;
+        predecessors = Arrays.copyOf(candidates, entries);
+        weights = Arrays.copyOf(candidateWeights, entries);
+    }
+
+    /**
+     * Gives the first entry for the predecessors of a state.
+     *
+     * @param id the id of the state
+     * @return the offset of the first entry
+     */
+    public int start(int id) {
+        return start[id];
+    }
+
+    /**
+     * Gives the offset just past the last entry for the predecessors of a state.
+     *
+     * @param id the id of the state
+     * @return the offset after the last entry
+     */
+    public int end(int id) {
+        return start[id + 1];
+    }
+
+    /**
+     * Gives the id of the predecessor for an entry.
+     *
+     * @param entry the offset of the entry
+     * @return the predecessor's id
+     */
+    public int predecessor(int entry) {
+        return predecessors[entry];
+    }
+
+    /**
+     * Gives the largest probability of the entry's predecessor transitioning into the state with one action.
+     *
+     * @param entry the offset of the entry
+     * @return the largest transition probability from the predecessor
+     */
+    public float weight(int entry) {
+        return weights[entry];
+    }
+}
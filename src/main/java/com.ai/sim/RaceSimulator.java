@@ -1,16 +1,16 @@
 package com.ai.sim;
 
 import com.ai.Policy;
+import com.ai.RandomSource;
 import com.ai.Racetrack;
 import com.ai.model.Position;
-import com.ai.model.State;
-import com.ai.model.Velocity;
 
 /**
  * An object for simulating a full race with a particular policy and starting position.
  */
 public class RaceSimulator {
-    private final ActionSimulator actionSimulator;
+    private final TransitionTable transitions;
+    private final BatchRaceSimulator batchSimulator;
     private final int iterationLimit;
 
     /**
@@ -20,8 +20,18 @@ public class RaceSimulator {
      * @param collisionModel the model for handling collisions
      */
     public RaceSimulator(Racetrack racetrack, CollisionModel collisionModel) {
-        this.actionSimulator = new MDPActionSimulator(new RacetrackMDP(racetrack, collisionModel));
+        this.transitions = CompiledRacetrackMDP.forTrack(racetrack, collisionModel).getTransitionTable();
         this.iterationLimit = racetrack.getWidth() * racetrack.getHeight() * 121;
+        this.batchSimulator = new BatchRaceSimulator(racetrack, transitions, iterationLimit);
+    }
+
+    /**
+     * Gives a simulator for running many races at once over the same racetrack, collision model and iteration limit.
+     *
+     * @return the batch race simulator
+     */
+    public BatchRaceSimulator getBatchSimulator() {
+        return batchSimulator;
     }
 
     /**
@@ -33,16 +43,39 @@ public class RaceSimulator {
      * @return the total cost (number of moves) to reach the end state
      */
     public Integer runPolicy(Position start, Policy policy) {
+        return runPolicy(start, policy, RandomSource.threadLocal());
+    }
+
+    /**
+     * Runs the given policy from the given start position until it either reaches the finish line
+     * or hits an iteration limit, drawing every random choice of the policy and the moves from the given random source.
+     *
+     * Runs with their own random sources don't share any state, so they can be run in parallel.
+     * The race is stepped over the compiled transitions, asking the policy for action indices,
+     * so no states or actions are built along the way.
+     *
+     * @param start the position to start at
+     * @param policy the policy to run
+     * @param random the random source to draw from
+     * @return the total cost (number of moves) to reach the end state
+     */
+    public Integer runPolicy(Position start, Policy policy, RandomSource random) {
         int cost = 0;
 
-        State currentState = new State(start, new Velocity(0, 0));
+        int currentState = transitions.id(start.getX(), start.getY(), 0, 0);
+
+        while (currentState != TransitionTable.TERMINAL && cost < iterationLimit) {
+            int action = policy.actionIndex(transitions.x(currentState), transitions.y(currentState),
+                                            transitions.vx(currentState), transitions.vy(currentState), random);
+            if (action == -1) {
+                throw new IllegalArgumentException("The policy has no action for " + transitions.state(currentState));
+            }
 
-        while (currentState != null && cost < iterationLimit) {
-            currentState = actionSimulator.getNextState(currentState, policy.getAction(currentState));
+            currentState = transitions.sample(currentState, action, random.nextDouble());
             cost++;
         }
 
-        if (currentState == null)
+        if (currentState == TransitionTable.TERMINAL)
             return cost;
         return iterationLimit;
     }
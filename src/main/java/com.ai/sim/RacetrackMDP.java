@@ -4,6 +4,8 @@ import java.util.ArrayList;
 import java.util.List;
 
 import com.ai.Racetrack;
+import com.ai.metrics.Instrumentation;
+import com.ai.metrics.Timer;
 import com.ai.model.Action;
 import com.ai.model.State;
 
@@ -14,11 +16,17 @@ import com.ai.model.State;
  * and applying no acceleration otherwise.
  */
 public class RacetrackMDP implements MDP {
+    private static final Timer GET_NEXT_STATES = Instrumentation.timer("mdp.getNextStates");
+    private static final Timer SAMPLE = Instrumentation.timer("mdp.sample");
+
     private final ActionSimulator racetrackSimulator;
 
-    private final double ACTION_SUCCESS_RATE = 0.8;
-    private final double ACTION_FAIL_RATE = 1 - ACTION_SUCCESS_RATE;
-    private final Action FAIL_ACTION = new Action(0, 0);
+    /* The version of the transitions the MDP gives. Bump it whenever they change without the success rate
+       changing (such as a change to how moves are traced), so saved transitions are compiled again */
+    public static final int TRANSITION_VERSION = 1;
+    public static final double ACTION_SUCCESS_RATE = 0.8;
+    private static final double ACTION_FAIL_RATE = 1 - ACTION_SUCCESS_RATE;
+    private static final Action FAIL_ACTION = Action.of(0, 0);
 
     /**
      * Makes an MDP for the given racetrack and collision model.
@@ -43,6 +51,7 @@ public class RacetrackMDP implements MDP {
      * @return the states that can potentially follow the curent state after performing the action
      */
     public List<PotentialState> getNextStates(State state, Action action) {
+        long start = GET_NEXT_STATES.start();
         List<PotentialState> nextStates = new ArrayList<>();
 
         if (FAIL_ACTION.equals(action)) {
@@ -52,6 +61,27 @@ public class RacetrackMDP implements MDP {
             nextStates.add(new PotentialState(racetrackSimulator.getNextState(state, FAIL_ACTION), ACTION_FAIL_RATE));
         }
 
+        GET_NEXT_STATES.stop(start);
         return nextStates;
     }
+
+    /**
+     * Chooses the state that follows performing the given action in the given state.
+     *
+     * Whether the action is applied is decided first, so only the move that is made is traced, rather
+     * than both. The action is applied if the decision number is at most 0.8, which chooses the same
+     * state as walking the potential states.
+     *
+     * @param state the current state
+     * @param action the current action
+     * @param decisionNum a random number uniformly drawn from [0, 1)
+     * @return the chosen state
+     */
+    @Override
+    public State sample(State state, Action action, double decisionNum) {
+        long start = SAMPLE.start();
+        State nextState = racetrackSimulator.getNextState(state, decisionNum <= ACTION_SUCCESS_RATE ? action : FAIL_ACTION);
+        SAMPLE.stop(start);
+        return nextState;
+    }
 }
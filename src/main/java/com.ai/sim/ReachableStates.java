@@ -0,0 +1,101 @@
+package com.ai.sim;
+
+import com.ai.Racetrack;
+import com.ai.model.Action;
+import com.ai.model.Position;
+import com.ai.model.State;
+import com.ai.model.StateIndex;
+import com.ai.model.Velocity;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * The set of states that can be reached from a racetrack's starting line.
+ *
+ * Found with a breadth-first search from every starting position at rest, applying every action with a
+ * deterministic racetrack simulator. Since the racetrack MDP only ever applies an action or no acceleration,
+ * which is one of the actions, every state the MDP can reach is in this set.
+ *
+ * Many states, such as moving at high speed right next to a wall, can never be reached, so only
+ * planning over these states saves both time and memory.
+ */
+public class ReachableStates {
+    private final StateIndex stateIndex;
+    private final int[] states;
+
+    /**
+     * Finds the reachable states on the given racetrack.
+     *
+     * @param racetrack the racetrack to search
+     * @param collisionModel the collision model to use
+     */
+    public ReachableStates(Racetrack racetrack, CollisionModel collisionModel) {
+        stateIndex = racetrack.getStateIndex();
+        ActionSimulator simulator = new DeterministicRacetrackSimulator(racetrack, collisionModel);
+
+        BitSet visited = new BitSet(stateIndex.size());
+        int[] queue = new int[racetrack.startingLine().size()];
+        int tail = 0;
+        for (Position start : racetrack.startingLine()) {
+            int index = stateIndex.index(start.getX(), start.getY(), 0, 0);
+            if (!visited.get(index)) {
+                visited.set(index);
+                queue[tail++] = index;
+            }
+        }
+
+        for (int head = 0; head < tail; head++) {
+            State state = stateIndex.state(queue[head]);
+            for (int ax = -1; ax <= 1; ax++) {
+                for (int ay = -1; ay <= 1; ay++) {
+                    State nextState = simulator.getNextState(state, Action.of(ax, ay));
+                    if (nextState == null) {
+                        continue;
+                    }
+
+                    int index = stateIndex.index(nextState);
+                    if (!visited.get(index)) {
+                        visited.set(index);
+                        if (tail == queue.length) {
+                            queue = Arrays.copyOf(queue, tail * 2);
+                        }
+                        queue[tail++] = index;
+                    }
+                }
+            }
+        }
+
+        //keep the states in index order, so states on the same position stay together
+        states = Arrays.copyOf(queue, tail);
+        Arrays.sort(states);
+    }
+
+    /**
+     * Gives the index the states are encoded with.
+     *
+     * @return the state index
+     */
+    public StateIndex getStateIndex() {
+        return stateIndex;
+    }
+
+    /**
+     * Gives the number of reachable states.
+     *
+     * @return the number of reachable states
+     */
+    public int size() {
+        return states.length;
+    }
+
+    /**
+     * Gives the index of the i-th reachable state, in index order.
+     *
+     * @param i which reachable state to give, from 0 to `size() - 1`
+     * @return the index of the state
+     */
+    public int get(int i) {
+        return states[i];
+    }
+}
@@ -0,0 +1,359 @@
+package com.ai.sim;
+
+import com.ai.model.Action;
+import com.ai.model.Position;
+import com.ai.model.State;
+import com.ai.model.StateIndex;
+import com.ai.model.Velocity;
+
+import java.util.Arrays;
+
+/**
+ * A precompiled, read-only copy of the transitions of a racetrack MDP.
+ *
+ * Every state reachable from the starting line is given a compact id, and the potential states for each
+ * (state, action) are stored in compressed sparse row form: the entries from `rowStart(id, action)` up to
+ * `rowEnd(id, action)` hold the successor ids and their probabilities.
+ * A successor of TERMINAL means the agent crossed the finish line.
+ *
+ * Since the transitions never change, compiling them once means collision pathing is only done once per
+ * (state, action) rather than once per lookup.
+ *
+ * Ids are given out in state index order, so the states on each position have consecutive ids. Looking up
+ * an id takes the first id on the state's position and the mask of the velocities compiled there, which
+ * costs 20 bytes per position rather than an id for every state the racetrack could index.
+ */
+public class TransitionTable {
+    public static final int TERMINAL = -1;
+
+    /* The largest array the VM can reliably allocate */
+    private static final int MAX_ARRAY_LENGTH = Integer.MAX_VALUE - 8;
+
+    private final StateIndex stateIndex;
+
+    private final int[] states;
+    /* The first id on every position, followed by the number of ids */
+    private final int[] cellStart;
+    /* The velocities compiled on every position, as a pair of bit masks of the velocity's index on the position */
+    private final long[] cellVelocities;
+
+    private final int[] rowStart;
+    private final int[] successors;
+    private final float[] probabilities;
+
+    /**
+     * Compile the transitions of the given MDP from the given reachable states.
+     *
+     * @param mdp the MDP to compile
+     * @param reachableStates the states to compile, which every transition of the MDP must stay within
+     */
+    public TransitionTable(MDP mdp, ReachableStates reachableStates) {
+        stateIndex = reachableStates.getStateIndex();
+
+        //give every reachable state a compact id
+        int size = reachableStates.size();
+        checkRows(size);
+        states = new int[size];
+        for (int id = 0; id < size; id++) {
+            states[id] = reachableStates.get(id);
+        }
+        cellStart = new int[stateIndex.size() / StateIndex.VELOCITIES + 1];
+        cellVelocities = new long[stateIndex.size() / StateIndex.VELOCITIES * 2];
+        indexIds();
+
+        //trace every action from every state, merging potential states that end up in the same place
+        rowStart = new int[size * Action.COUNT + 1];
+        int[] nextSuccessors = new int[size * Action.COUNT];
+        float[] nextProbabilities = new float[size * Action.COUNT];
+        int entries = 0;
+        for (int id = 0; id < size; id++) {
+            State state = state(id);
+            for (int ax = -1; ax <= 1; ax++) {
+                for (int ay = -1; ay <= 1; ay++) {
+                    Action action = Action.of(ax, ay);
+                    int row = id * Action.COUNT + action.index();
+                    rowStart[row] = entries;
+
+                    for (PotentialState potentialState : mdp.getNextStates(state, action)) {
+                        int successor = potentialState.getState() == null ? TERMINAL : id(potentialState.getState());
+                        if (successor == -1 && potentialState.getState() != null) {
+                            throw new IllegalStateException("Transition to a state that was not reached: " + potentialState);
+                        }
+
+                        int entry = rowStart[row];
+                        while (entry < entries && nextSuccessors[entry] != successor) {
+                            entry++;
+                        }
+                        if (entry == entries) {
+                            if (entries == nextSuccessors.length) {
+                                if (entries == MAX_ARRAY_LENGTH) {
+                                    throw new IllegalStateException("Too many transitions to compile");
+                                }
+                                int capacity = (int)Math.min(Math.max(entries + (entries >> 1), 16L), MAX_ARRAY_LENGTH);
+                                nextSuccessors = Arrays.copyOf(nextSuccessors, capacity);
+                                nextProbabilities = Arrays.copyOf(nextProbabilities, capacity);
+                            }
+                            nextSuccessors[entries] = successor;
+                            nextProbabilities[entries] = 0;
+                            entries++;
+                        }
+                        nextProbabilities[entry] += potentialState.getProbability();
+                    }
+                }
+            }
+        }
+        rowStart[size * Action.COUNT] = entries;
+        successors = Arrays.copyOf(nextSuccessors, entries);
+        probabilities = Arrays.copyOf(nextProbabilities, entries);
+    }
+
+    /**
+     * Rebuild a transition table from the arrays it was compiled into (see `TransitionCache`).
+     *
+     * @param stateIndex the index the states are encoded with
+     * @param states the state index of every id
+     * @param rowStart the first entry of every (id, action) row, followed by the number of entries
+     * @param successors the successor id of every entry
+     * @param probabilities the probability of every entry
+     */
+    public TransitionTable(StateIndex stateIndex, int[] states, int[] rowStart, int[] successors, float[] probabilities) {
+        checkRows(states.length);
+        if (rowStart.length != states.length * Action.COUNT + 1 || successors.length != probabilities.length ||
+            rowStart[states.length * Action.COUNT] != successors.length) {
+            throw new IllegalArgumentException("The transition arrays do not fit together");
+        }
+
+        this.stateIndex = stateIndex;
+        this.states = states;
+        this.rowStart = rowStart;
+        this.successors = successors;
+        this.probabilities = probabilities;
+        cellStart = new int[stateIndex.size() / StateIndex.VELOCITIES + 1];
+        cellVelocities = new long[stateIndex.size() / StateIndex.VELOCITIES * 2];
+        indexIds();
+    }
+
+    /**
+     * Checks there are few enough states for every (state, action) row to fit in an array.
+     */
+    private static void checkRows(int size) {
+        if ((long)size * Action.COUNT + 1 > MAX_ARRAY_LENGTH) {
+            throw new IllegalArgumentException(size + " states are too many to compile");
+        }
+    }
+
+    /**
+     * Fills in the lookup of each state's id from the states, which must be in strictly increasing index order.
+     */
+    private void indexIds() {
+        for (int id = 0; id < states.length; id++) {
+            int index = states[id];
+            if (index < 0 || index >= stateIndex.size() || (id > 0 && index <= states[id - 1])) {
+                throw new IllegalArgumentException("The states are not in increasing index order");
+            }
+            int cell = index / StateIndex.VELOCITIES;
+            int velocity = index % StateIndex.VELOCITIES;
+            cellVelocities[cell * 2 + (velocity >>> 6)] |= 1L << velocity;
+            cellStart[cell + 1]++;
+        }
+        for (int cell = 0; cell + 1 < cellStart.length; cell++) {
+            cellStart[cell + 1] += cellStart[cell];
+        }
+    }
+
+    /**
+     * Gives the number of compiled states; ids range from 0 to `size() - 1`.
+     *
+     * @return the number of compiled states
+     */
+    public int size() {
+        return states.length;
+    }
+
+    /**
+     * Gives the number of entries over every (state, action) row.
+     *
+     * @return the number of entries
+     */
+    public int entries() {
+        return successors.length;
+    }
+
+    /**
+     * Gives the compact id of the state with the given coordinates.
+     *
+     * @param x the x-coordinate
+     * @param y the y-coordinate
+     * @param vx the x-component of the velocity
+     * @param vy the y-component of the velocity
+     * @return the state's id, or -1 if the state was not compiled
+     */
+    public int id(int x, int y, int vx, int vy) {
+        if (!stateIndex.contains(x, y, vx, vy)) {
+            return -1;
+        }
+        int index = stateIndex.index(x, y, vx, vy);
+        int cell = index / StateIndex.VELOCITIES;
+        int velocity = index - cell * StateIndex.VELOCITIES;
+
+        //the id is the first id on the position plus the number of compiled velocities below this one
+        long low = cellVelocities[cell * 2];
+        long mask;
+        int below;
+        if (velocity < Long.SIZE) {
+            mask = low;
+            below = 0;
+        } else {
+            mask = cellVelocities[cell * 2 + 1];
+            below = Long.bitCount(low);
+        }
+        long bit = 1L << velocity;
+        if ((mask & bit) == 0) {
+            return -1;
+        }
+        return cellStart[cell] + below + Long.bitCount(mask & (bit - 1));
+    }
+
+    /**
+     * Gives the compact id of the given state.
+     *
+     * @param state the state to look up
+     * @return the state's id, or -1 if the state was not compiled
+     */
+    public int id(State state) {
+        Position position = state.getPosition();
+        Velocity velocity = state.getVelocity();
+        return id(position.getX(), position.getY(), velocity.getX(), velocity.getY());
+    }
+
+    /**
+     * Gives the index (see `StateIndex`) of the state with the given id.
+     *
+     * @param id the id of the state
+     * @return the state's index
+     */
+    public int index(int id) {
+        return states[id];
+    }
+
+    /**
+     * Gives the x-coordinate of the state with the given id.
+     *
+     * @param id the id of the state
+     * @return the state's x-coordinate
+     */
+    public int x(int id) {
+        return stateIndex.x(states[id]);
+    }
+
+    /**
+     * Gives the y-coordinate of the state with the given id.
+     *
+     * @param id the id of the state
+     * @return the state's y-coordinate
+     */
+    public int y(int id) {
+        return stateIndex.y(states[id]);
+    }
+
+    /**
+     * Gives the x-component of the velocity of the state with the given id.
+     *
+     * @param id the id of the state
+     * @return the state's x-velocity
+     */
+    public int vx(int id) {
+        return stateIndex.vx(states[id]);
+    }
+
+    /**
+     * Gives the y-component of the velocity of the state with the given id.
+     *
+     * @param id the id of the state
+     * @return the state's y-velocity
+     */
+    public int vy(int id) {
+        return stateIndex.vy(states[id]);
+    }
+
+    /**
+     * Builds the state object for the given id.
+     *
+     * @param id the id of the state
+     * @return the state with that id
+     */
+    public State state(int id) {
+        return stateIndex.state(states[id]);
+    }
+
+    /**
+     * Gives the first entry for performing an action in a state.
+     *
+     * @param id the id of the state
+     * @param action the index of the action
+     * @return the offset of the first entry
+     */
+    public int rowStart(int id, int action) {
+        return rowStart[id * Action.COUNT + action];
+    }
+
+    /**
+     * Gives the offset just past the last entry for performing an action in a state.
+     *
+     * @param id the id of the state
+     * @param action the index of the action
+     * @return the offset after the last entry
+     */
+    public int rowEnd(int id, int action) {
+        return rowStart[id * Action.COUNT + action + 1];
+    }
+
+    /**
+     * Gives the id of the successor state for an entry.
+     *
+     * @param entry the offset of the entry
+     * @return the successor's id, or TERMINAL if the finish line was crossed
+     */
+    public int successor(int entry) {
+        return successors[entry];
+    }
+
+    /**
+     * Gives the probability of observing the successor state for an entry.
+     *
+     * @param entry the offset of the entry
+     * @return the probability of the entry's successor
+     */
+    public float probability(int entry) {
+        return probabilities[entry];
+    }
+
+    /**
+     * Chooses a successor of performing an action in a state, weighted on each successor's probability.
+     *
+     * The entries are walked in order, subtracting each probability from the decision number, and the
+     * first one that brings it to 0 is chosen (like `MDPActionSimulator`).
+     *
+     * The probabilities are stored as floats, so the boundaries between successors are only as exact as a
+     * float: a decision number within about 1e-7 of a boundary can choose a different successor than
+     * `RacetrackMDP.sample` would. For the 0.8 success rate, decision numbers in (0.8, 0.8000000119] choose
+     * the successful move here but the failed one there. Each successor's chance is off by at most that much.
+     *
+     * @param id the id of the state
+     * @param action the index of the action
+     * @param decisionNum a random number uniformly drawn from [0, 1)
+     * @return the chosen successor's id, or TERMINAL if the finish line was crossed
+     */
+    public int sample(int id, int action, double decisionNum) {
+        int end = rowEnd(id, action);
+        for (int entry = rowStart(id, action); entry < end; entry++) {
+            decisionNum -= probabilities[entry];
+            if (decisionNum <= 0.0) {
+                return successors[entry];
+            }
+        }
+
+        //assume floating-point error, so the last successor is picked
+        return successors[end - 1];
+    }
+}
@@ -0,0 +1,63 @@
+package com.ai.sim;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ai.Policy;
+import com.ai.RandomSource;
+import com.ai.Racetrack;
+import com.ai.alg.ValueIteration;
+import com.ai.model.Action;
+
+import java.util.Arrays;
+
+public class BatchRaceSimulatorTest {
+    public Racetrack readTrackOrFail(String file) {
+        try {
+            return Racetrack.fromFile(file);
+        } catch (Exception e) {
+            Assert.fail(e.getMessage());
+        }
+        return null;
+    }
+
+    @Test
+    public void testMatchesRaceSimulator() {
+        Racetrack track = readTrackOrFail("small_l_track.txt");
+        for (CollisionModel collisionModel : new CollisionModel[] {Collision.STOP, Collision.RESTART}) {
+            ValueIteration learner = new ValueIteration(track, collisionModel);
+            while (!learner.finished()) {
+                learner.next();
+            }
+            Policy policy = learner.getPolicy();
+
+            RaceSimulator raceSimulator = new RaceSimulator(track, collisionModel);
+            BatchRaceSimulator batchSimulator = raceSimulator.getBatchSimulator();
+            RandomSource random = RandomSource.seeded(3);
+            int races = 20000;
+
+            double expected = 0;
+            for (int race = 0; race < races; race++) {
+                expected += raceSimulator.runPolicy(track.randomStartingPosition(random), policy, random);
+            }
+            expected /= races;
+            double actual = Arrays.stream(batchSimulator.runPolicy(batchSimulator.actionTable(policy), races, random)).average().getAsDouble();
+
+            //both are means of the same distribution of run lengths
+            Assert.assertEquals(expected, actual, expected * 0.05);
+        }
+    }
+
+    @Test
+    public void testUnfinishedRacesHitLimit() {
+        Racetrack track = readTrackOrFail("all_safe.txt");
+        RaceSimulator raceSimulator = new RaceSimulator(track, Collision.STOP);
+        BatchRaceSimulator batchSimulator = raceSimulator.getBatchSimulator();
+
+        //standing still never reaches the finish line
+        byte[] actions = batchSimulator.actionTable(state -> new Action(0, 0));
+        for (int cost : batchSimulator.runPolicy(actions, 10, RandomSource.seeded(3))) {
+            Assert.assertTrue(raceSimulator.atIterationLimit(cost));
+        }
+    }
+}
@@ -8,6 +8,13 @@ import com.ai.Racetrack;
 import com.ai.model.Position;
 import com.ai.model.Velocity;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
 public class CollisionTest {
     public Racetrack readTrackOrFail(String file) {
         try {
@@ -50,4 +57,88 @@ public class CollisionTest {
 	Assert.assertEquals(new Position(2, 0), Collision.followMove(track, new Position(2, 2), new Velocity(0, -5)));
 	Assert.assertEquals(new Position(2, 4), Collision.followMove(track, new Position(2, 2), new Velocity(0, 5)));
     }
+
+    @Test
+    public void testCacheMatchesFollowMove() {
+	for (String file : new String[] {"all_safe.txt", "small_test_2.txt", "windy.txt", "l_track.txt", "o_track.txt", "r_track.txt", "small_l_track.txt"}) {
+	    Racetrack track = readTrackOrFail(file);
+	    CollisionCache cache = CollisionCache.forTrack(track, CollisionEngine.FLOATING_POINT);
+
+	    //trace every move twice, so the second lookup comes from the cache
+	    for (int pass = 0; pass < 2; pass++) {
+		for (int x = 0; x < track.getWidth(); x++) {
+		    for (int y = 0; y < track.getHeight(); y++) {
+			for (int vx = -5; vx <= 5; vx++) {
+			    for (int vy = -5; vy <= 5; vy++) {
+				Position expected = Collision.followMove(track, new Position(x, y), new Velocity(vx, vy));
+				int result = cache.trace(track, x, y, vx, vy);
+
+				Assert.assertEquals(expected == null, CollisionEngine.finished(result));
+				if (expected != null) {
+				    Assert.assertEquals(expected, new Position(CollisionEngine.x(result), CollisionEngine.y(result)));
+				    Assert.assertEquals(!expected.equals(new Position(x + vx, y + vy)), CollisionEngine.collided(result));
+				}
+			    }
+			}
+		    }
+		}
+	    }
+	}
+    }
+
+    @Test
+    public void testIntegerEngineMatchesFloatingPoint() {
+	for (String file : new String[] {"all_safe.txt", "small_test_1.txt", "small_test_2.txt", "windy.txt", "l_track.txt", "o_track.txt", "r_track.txt", "small_l_track.txt"}) {
+	    Racetrack track = readTrackOrFail(file);
+
+	    for (int x = 0; x < track.getWidth(); x++) {
+		for (int y = 0; y < track.getHeight(); y++) {
+		    for (int vx = -5; vx <= 5; vx++) {
+			for (int vy = -5; vy <= 5; vy++) {
+			    Assert.assertEquals(file + " at (" + x + ", " + y + ") moving (" + vx + ", " + vy + ")",
+						CollisionEngine.FLOATING_POINT.trace(track, x, y, vx, vy),
+						CollisionEngine.INTEGER.trace(track, x, y, vx, vy));
+			}
+		    }
+		}
+	    }
+	}
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCacheRejectsOffTrackStart() {
+	Racetrack track = readTrackOrFail("all_safe.txt");
+	CollisionCache.forTrack(track, CollisionEngine.INTEGER).trace(track, -1, 0, 1, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCacheRejectsOversizedTrack() throws IOException {
+	//one row wider than a packed result can hold
+	char[] row = new char[CollisionEngine.MAX_COORDINATE + 2];
+	Arrays.fill(row, '.');
+	String text = "1," + row.length + "\n" + new String(row) + "\n";
+	Racetrack track = Racetrack.fromStream(new ByteArrayInputStream(text.getBytes(StandardCharsets.US_ASCII)));
+	CollisionCache.forTrack(track, CollisionEngine.INTEGER);
+    }
+
+    @Test
+    public void testCacheDoesNotHoldRacetrack() {
+	Racetrack track = readTrackOrFail("all_safe.txt");
+	Assert.assertFalse(CollisionEngine.finished(CollisionCache.forTrack(track, CollisionEngine.FLOATING_POINT).trace(track, 0, 0, 1, 1)));
+
+	//the caches are weakly keyed by racetrack, so a cache must not refer back to its racetrack
+	for (Field field : CollisionCache.class.getDeclaredFields()) {
+	    if (!Modifier.isStatic(field.getModifiers())) {
+		Assert.assertFalse(field.getName(), Racetrack.class.isAssignableFrom(field.getType()));
+	    }
+	}
+    }
+
+    @Test
+    public void testModelsPerEngineAreShared() {
+	for (CollisionEngine engine : CollisionEngine.values()) {
+	    Assert.assertSame(Collision.stop(engine), Collision.stop(engine));
+	    Assert.assertSame(Collision.restart(engine), Collision.restart(engine));
+	}
+    }
 }
@@ -0,0 +1,147 @@
+package com.ai.io;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.ai.Policy;
+import com.ai.RandomSource;
+import com.ai.Racetrack;
+import com.ai.alg.QLearning;
+import com.ai.alg.ValueIteration;
+import com.ai.model.Action;
+import com.ai.sim.Collision;
+import com.ai.sim.CompiledRacetrackMDP;
+import com.ai.sim.TransitionTable;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+public class LearnerSnapshotTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    public Racetrack readTrackOrFail(String file) {
+        try {
+            return Racetrack.fromFile(file);
+        } catch (Exception e) {
+            Assert.fail(e.getMessage());
+        }
+        return null;
+    }
+
+    @Test
+    public void testValueIterationRoundTrip() throws Exception {
+        Racetrack track = readTrackOrFail("small_l_track.txt");
+        ValueIteration learner = new ValueIteration(track, Collision.STOP, false);
+        while (!learner.finished()) {
+            learner.next();
+        }
+
+        Path path = folder.getRoot().toPath().resolve("value-iteration.snapshot");
+        learner.snapshot().write(path);
+        LearnerSnapshot snapshot = LearnerSnapshot.map(path);
+
+        Assert.assertEquals(learner.toString(), snapshot.getLearner());
+        Assert.assertEquals(Collision.STOP.toString(), snapshot.getCollisionModel());
+        Assert.assertEquals(learner.getIterationCount(), snapshot.getIterationCount());
+        Assert.assertTrue(snapshot.getHyperparameters().containsKey("gamma"));
+        Assert.assertTrue(snapshot.hasUtilities());
+        Assert.assertFalse(snapshot.hasQValues());
+
+        TransitionTable transitions = new CompiledRacetrackMDP(track, Collision.STOP).getTransitionTable();
+        Assert.assertEquals(transitions.size(), snapshot.size());
+
+        Policy expected = learner.getPolicy();
+        Policy actual = snapshot.getPolicy(track);
+        Assert.assertTrue(actual.isDeterministic());
+        for (int id = 0; id < transitions.size(); id++) {
+            int x = transitions.x(id), y = transitions.y(id), vx = transitions.vx(id), vy = transitions.vy(id);
+            Assert.assertEquals(expected.actionIndex(x, y, vx, vy), actual.actionIndex(x, y, vx, vy));
+            Assert.assertEquals(expected.getAction(transitions.state(id)), actual.getAction(transitions.state(id)));
+            Assert.assertEquals(id, snapshot.id(transitions.index(id)));
+        }
+
+        //only the reachable states take up space, and the rest have no id
+        Assert.assertEquals(-1, snapshot.id(track.getStateIndex().size() - 1));
+        Assert.assertTrue(Files.size(path) < track.getStateIndex().size());
+    }
+
+    @Test
+    public void testQLearningRoundTrip() throws Exception {
+        Racetrack track = readTrackOrFail("small_l_track.txt");
+        QLearning learner = new QLearning(track, Collision.RESTART, RandomSource.seeded(5));
+        for (int i = 0; i < 20; i++) {
+            learner.next();
+        }
+
+        LearnerSnapshot expected = learner.snapshot();
+        Path path = folder.getRoot().toPath().resolve("qlearning.snapshot");
+        expected.write(path);
+        LearnerSnapshot actual = LearnerSnapshot.map(path);
+
+        Assert.assertTrue(actual.hasQValues());
+        Assert.assertEquals(expected.size(), actual.size());
+        for (int id = 0; id < expected.size(); id++) {
+            Assert.assertEquals(expected.index(id), actual.index(id));
+            Assert.assertEquals(expected.bestAction(id), actual.bestAction(id));
+            Assert.assertEquals(expected.timesVisited(id), actual.timesVisited(id));
+            for (int action = 0; action < Action.COUNT; action++) {
+                Assert.assertEquals(Float.floatToIntBits(expected.qValue(id, action)), Float.floatToIntBits(actual.qValue(id, action)));
+            }
+        }
+    }
+
+    @Test
+    public void testCheckpointResumesExactly() throws Exception {
+        Racetrack track = readTrackOrFail("small_l_track.txt");
+        QLearning learner = new QLearning(track, Collision.STOP, RandomSource.seeded(11));
+        for (int i = 0; i < 10; i++) {
+            learner.next();
+        }
+
+        Checkpointer checkpointer = new Checkpointer(folder.getRoot().toPath(), 1, TimeUnit.HOURS);
+        checkpointer.checkpoint(learner, "qlearning");
+        checkpointer.close();
+        for (int i = 0; i < 10; i++) {
+            learner.next();
+        }
+
+        QLearning resumed = new QLearning(track, Collision.STOP, RandomSource.seeded(12));
+        Assert.assertTrue(new Checkpointer(folder.getRoot().toPath(), 1, TimeUnit.HOURS).resume(resumed, "qlearning"));
+        for (int i = 0; i < 10; i++) {
+            resumed.next();
+        }
+        assertSameQValues(learner.snapshot(), resumed.snapshot());
+
+        //checkpointing doesn't change the choices of the learner it was taken from
+        QLearning uncheckpointed = new QLearning(track, Collision.STOP, RandomSource.seeded(11));
+        for (int i = 0; i < 20; i++) {
+            uncheckpointed.next();
+        }
+        assertSameQValues(uncheckpointed.snapshot(), learner.snapshot());
+    }
+
+    private static void assertSameQValues(LearnerSnapshot expected, LearnerSnapshot actual) {
+        Assert.assertEquals(expected.getIterationCount(), actual.getIterationCount());
+        for (int id = 0; id < expected.size(); id++) {
+            Assert.assertEquals(expected.timesVisited(id), actual.timesVisited(id));
+            for (int action = 0; action < Action.COUNT; action++) {
+                Assert.assertEquals(Float.floatToIntBits(expected.qValue(id, action)), Float.floatToIntBits(actual.qValue(id, action)));
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsOtherRacetrack() throws Exception {
+        Racetrack track = readTrackOrFail("small_l_track.txt");
+        ValueIteration learner = new ValueIteration(track, Collision.STOP, false);
+        learner.next();
+
+        Path path = folder.getRoot().toPath().resolve("value-iteration.snapshot");
+        learner.snapshot().write(path);
+        LearnerSnapshot.map(path).getPolicy(readTrackOrFail("l_track.txt"));
+    }
+}
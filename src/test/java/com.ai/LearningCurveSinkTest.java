@@ -0,0 +1,68 @@
+package com.ai.io;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+public class LearningCurveSinkTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private void testRoundTrip(String file) throws Exception {
+        Path path = folder.getRoot().toPath().resolve(file);
+        List<LearningCurvePoint> expected = new ArrayList<>();
+        try (LearningCurveSink sink = new LearningCurveSink(path)) {
+            for (int i = 1; i <= 100; i++) {
+                expected.add(sink.record("SARSA", "track, \"quoted\"", "stop model", i * 10, 100.0 / i, 1.5, 2.25, i < 50));
+            }
+        }
+        //reopening appends rather than starting over
+        try (LearningCurveSink sink = new LearningCurveSink(path)) {
+            expected.add(sink.record("Value iteration", "l_track", "restart model", 9, 12.5, 0.5, 0.25, false));
+            //a single test has no variance
+            expected.add(sink.record("Value iteration", "l_track", "restart model", 10, 12.5, Double.NaN, Double.NaN, false));
+        }
+
+        List<LearningCurvePoint> actual = LearningCurveSink.read(path);
+        Assert.assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Assert.assertEquals(expected.get(i).getCurve(), actual.get(i).getCurve());
+            Assert.assertEquals(expected.get(i).getIteration(), actual.get(i).getIteration());
+            Assert.assertEquals(expected.get(i).getMean(), actual.get(i).getMean(), 0);
+            Assert.assertEquals(expected.get(i).getConfidence(), actual.get(i).getConfidence(), 0);
+            Assert.assertEquals(expected.get(i).getVariance(), actual.get(i).getVariance(), 0);
+            Assert.assertEquals(expected.get(i).isAtIterationLimit(), actual.get(i).isAtIterationLimit());
+            Assert.assertEquals(expected.get(i).getWallMillis(), actual.get(i).getWallMillis());
+            Assert.assertEquals(expected.get(i).getIterationsPerSecond(), actual.get(i).getIterationsPerSecond(), 0);
+        }
+    }
+
+    @Test
+    public void testCsvRoundTrip() throws Exception {
+        testRoundTrip("learning-curve.csv");
+    }
+
+    @Test
+    public void testJsonlRoundTrip() throws Exception {
+        testRoundTrip("learning-curve.jsonl");
+    }
+
+    @Test
+    public void testJsonlWritesNullForNaN() throws Exception {
+        Path path = folder.getRoot().toPath().resolve("learning-curve.jsonl");
+        try (LearningCurveSink sink = new LearningCurveSink(path)) {
+            sink.record("SARSA", "l_track", "stop model", 1, 10, Double.NaN, Double.NaN, false);
+        }
+
+        String line = new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+        Assert.assertFalse(line, line.contains("NaN"));
+        Assert.assertTrue(line, line.contains("\"variance\":null"));
+    }
+}
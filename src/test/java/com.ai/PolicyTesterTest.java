@@ -0,0 +1,89 @@
+package com.ai;
+
+import com.ai.alg.QLearning;
+import com.ai.alg.SARSA;
+import com.ai.alg.ValueIteration;
+import com.ai.io.LearnerSnapshot;
+import com.ai.model.Action;
+import com.ai.sim.Collision;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Path;
+
+public class PolicyTesterTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    public Racetrack readTrackOrFail(String file) {
+        try {
+            return Racetrack.fromFile(file);
+        } catch (Exception e) {
+            Assert.fail(e.getMessage());
+        }
+        return null;
+    }
+
+    @Test
+    public void testSeededTestsRepeat() {
+	Racetrack track = readTrackOrFail("small_l_track.txt");
+	ValueIteration learner = new ValueIteration(track, Collision.STOP);
+	while (!learner.finished()) {
+	    learner.next();
+	}
+
+	Result first = new PolicyTester(track, Collision.STOP, 50, 42).testPolicy(learner.getPolicy());
+	Result second = new PolicyTester(track, Collision.STOP, 50, 42).testPolicy(learner.getPolicy());
+	Assert.assertEquals(first.getMean(), second.getMean(), 0);
+	Assert.assertEquals(first.getVariance(), second.getVariance(), 0);
+    }
+
+    @Test
+    public void testSeededLearnersRepeat() {
+	Racetrack track = readTrackOrFail("small_l_track.txt");
+	Result[] results = new Result[2];
+
+	for (int i = 0; i < results.length; i++) {
+	    RandomSource random = RandomSource.seeded(7);
+	    SARSA learner = new SARSA(track, Collision.STOP, random.split());
+	    for (int episode = 0; episode < 100; episode++) {
+		learner.next();
+	    }
+	    results[i] = new PolicyTester(track, Collision.STOP, 50, random.split()).testPolicy(learner.getPolicy());
+	}
+
+	Assert.assertEquals(results[0].getMean(), results[1].getMean(), 0);
+	Assert.assertEquals(results[0].getVariance(), results[1].getVariance(), 0);
+    }
+
+    @Test
+    public void testStopsEarlyWhenNothingTerminates() {
+	Racetrack track = readTrackOrFail("all_safe.txt");
+	PolicyTester tester = new PolicyTester(track, Collision.STOP, 50, 42);
+
+	//standing still never reaches the finish line
+	Result result = tester.testPolicy(state -> new Action(0, 0));
+	Assert.assertEquals(PolicyTester.EARLY_STOP_TESTS, result.getSampleSize());
+	Assert.assertTrue(tester.atIterationLimit((int)result.getMean()));
+	Assert.assertEquals(0, result.getVariance(), 0);
+    }
+
+    @Test
+    public void testMappedQLearningSnapshot() throws Exception {
+	Racetrack track = readTrackOrFail("small_l_track.txt");
+	QLearning learner = new QLearning(track, Collision.STOP, RandomSource.seeded(5));
+	learner.next();
+
+	//a single episode leaves most states without an action, where the snapshot's policy acts randomly
+	Path path = folder.getRoot().toPath().resolve("qlearning.snapshot");
+	learner.snapshot().write(path);
+	Policy policy = LearnerSnapshot.map(path).getPolicy(track);
+	Assert.assertFalse(policy.isDeterministic());
+
+	Result result = new PolicyTester(track, Collision.STOP, 20, 42).testPolicy(policy);
+	Assert.assertTrue(result.getSampleSize() >= 10);
+	Assert.assertTrue(result.getMean() > 0);
+    }
+}
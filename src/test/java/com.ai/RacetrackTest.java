@@ -3,9 +3,16 @@ package com.ai;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import com.ai.model.Position;
+import com.ai.model.State;
+import com.ai.model.StateIndex;
 
 public class RacetrackTest {
     public Racetrack readTrackOrFail(String file) {
@@ -99,4 +106,65 @@ public class RacetrackTest {
         Assert.assertTrue(finishLine.contains(new Position(3, 1)));
         Assert.assertTrue(finishLine.contains(new Position(4, 1)));
     }
+
+    @Test
+    public void testCellsMatchLines() {
+        final Racetrack track = readTrackOrFail("l_track.txt");
+        for (int x = -3; x < track.getWidth() + 3; x++) {
+            for (int y = -3; y < track.getHeight() + 3; y++) {
+                Position position = new Position(x, y);
+                Assert.assertEquals(track.startingLine().contains(position), track.isStart(x, y));
+                Assert.assertEquals(track.finishLine().contains(position), track.isFinish(x, y));
+                Assert.assertEquals(track.finishLine().contains(position), track.isFinish(position));
+                if (track.isStart(x, y) || track.isFinish(x, y)) {
+                    Assert.assertTrue("Expected safe square", track.isSafe(x, y));
+                }
+            }
+        }
+        Assert.assertFalse(track.isSafe(Integer.MIN_VALUE, 0));
+        Assert.assertFalse(track.isSafe(0, Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void testLargeStateIndex() {
+        //a 2000x2000 racetrack has 484 million states, which are only made as they are asked for
+        StateIndex stateIndex = new StateIndex(2000, 2000);
+        int index = stateIndex.index(1999, 1999, -5, 5);
+        Assert.assertEquals(stateIndex.size() - StateIndex.VELOCITIES + StateIndex.SPEEDS - 1, index);
+        Assert.assertSame(stateIndex.state(index), stateIndex.state(1999, 1999, -5, 5));
+        Assert.assertEquals(new Position(1999, 1999), stateIndex.state(index).getPosition());
+    }
+
+    @Test
+    public void testStateIndexSharedAcrossThreads() throws Exception {
+        StateIndex stateIndex = new StateIndex(20, 20);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<State[]>> interns = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                interns.add(executor.submit(() -> {
+                    State[] states = new State[stateIndex.size()];
+                    for (int index = 0; index < states.length; index++) {
+                        states[index] = stateIndex.state(index);
+                    }
+                    return states;
+                }));
+            }
+            State[] first = interns.get(0).get();
+            for (Future<State[]> intern : interns) {
+                State[] states = intern.get();
+                for (int index = 0; index < states.length; index++) {
+                    Assert.assertSame(first[index], states[index]);
+                    Assert.assertSame(first[index].getPosition(), states[index].getPosition());
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testStateIndexTooLarge() {
+        new StateIndex(5000, 5000);
+    }
 }
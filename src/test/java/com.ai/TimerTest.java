@@ -0,0 +1,43 @@
+package com.ai.metrics;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+public class TimerTest {
+    @Test
+    public void testPercentilesWithinBucketPrecision() {
+        Timer timer = new Timer("test");
+        for (long nanos = 1; nanos <= 100000; nanos++) {
+            timer.record(nanos);
+        }
+
+        Assert.assertEquals(100000, timer.getCount());
+        Assert.assertEquals(100000 / 1e3, timer.getMaxMicros(), 0);
+        Assert.assertEquals(50000.5 / 1e3, timer.getMeanMicros(), 1e-9);
+        for (double percentile : new double[] {1, 10, 50, 90, 99, 99.9, 100}) {
+            double expected = percentile / 100 * 100000;
+            long actual = timer.percentileNanos(percentile);
+            Assert.assertTrue(percentile + "th percentile " + actual, actual >= expected && actual <= expected * 1.125);
+        }
+
+        timer.reset();
+        Assert.assertEquals(0, timer.getCount());
+        Assert.assertEquals(0, timer.percentileNanos(50));
+    }
+
+    @Test
+    public void testDisabledIsNoOp() {
+        Assume.assumeFalse(Instrumentation.isEnabled());
+
+        Timer timer = Instrumentation.timer("test.disabled");
+        timer.stop(timer.start());
+        Counter counter = Instrumentation.counter("test.disabled");
+        counter.increment();
+        counter.add(10);
+
+        Assert.assertEquals(0, timer.start());
+        Assert.assertEquals(0, timer.getCount());
+        Assert.assertEquals(0, counter.getCount());
+    }
+}
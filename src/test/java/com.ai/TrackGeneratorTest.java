@@ -0,0 +1,74 @@
+package com.ai;
+
+import com.ai.model.Position;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+public class TrackGeneratorTest {
+    private String writeOrFail(TrackGenerator generator, int width, int height) {
+        StringWriter out = new StringWriter();
+        try {
+            generator.write(width, height, out);
+        } catch (IOException e) {
+            Assert.fail(e.getMessage());
+        }
+        return out.toString();
+    }
+
+    @Test
+    public void testSameSeedSameTrack() {
+        String first = writeOrFail(new TrackGenerator(3).withCorridorWidth(3).withCurvature(0.5), 60, 40);
+        String second = writeOrFail(new TrackGenerator(3).withCorridorWidth(3).withCurvature(0.5), 60, 40);
+        String other = writeOrFail(new TrackGenerator(4).withCorridorWidth(3).withCurvature(0.5), 60, 40);
+
+        Assert.assertEquals(first, second);
+        Assert.assertNotEquals(first, other);
+    }
+
+    @Test
+    public void testSizeAndLines() {
+        Racetrack track = new TrackGenerator(1).withCorridorWidth(4).generate(50, 30);
+
+        Assert.assertEquals(50, track.getWidth());
+        Assert.assertEquals(30, track.getHeight());
+        Assert.assertEquals(4, track.startingLine().size());
+        Assert.assertEquals(4, track.finishLine().size());
+    }
+
+    @Test
+    public void testFinishIsReachable() {
+        Racetrack track = new TrackGenerator(2).withCorridorWidth(2).withCurvature(0.8).generate(200, 150);
+
+        //flood fill the safe cells from the starting line
+        boolean[][] reached = new boolean[track.getWidth()][track.getHeight()];
+        Deque<Position> queue = new ArrayDeque<>(track.startingLine());
+        for (Position start : track.startingLine()) {
+            reached[start.getX()][start.getY()] = true;
+        }
+        while (!queue.isEmpty()) {
+            Position position = queue.poll();
+            int[][] steps = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
+            for (int[] step : steps) {
+                int x = position.getX() + step[0], y = position.getY() + step[1];
+                if (track.isSafe(x, y) && !reached[x][y]) {
+                    reached[x][y] = true;
+                    queue.add(new Position(x, y));
+                }
+            }
+        }
+
+        for (Position finish : track.finishLine()) {
+            Assert.assertTrue("Expected the finish line to be reachable", reached[finish.getX()][finish.getY()]);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTooSmall() {
+        new TrackGenerator(1).withCorridorWidth(10).generate(12, 12);
+    }
+}
@@ -0,0 +1,109 @@
+package com.ai.io;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.ai.Racetrack;
+import com.ai.model.Action;
+import com.ai.sim.Collision;
+import com.ai.sim.CompiledRacetrackMDP;
+import com.ai.sim.TransitionTable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+public class TransitionCacheTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    public Racetrack readTrackOrFail(String file) {
+        try {
+            return Racetrack.fromFile(file);
+        } catch (Exception e) {
+            Assert.fail(e.getMessage());
+        }
+        return null;
+    }
+
+    private void assertSameTransitions(TransitionTable expected, TransitionTable actual) {
+        Assert.assertEquals(expected.size(), actual.size());
+        Assert.assertEquals(expected.entries(), actual.entries());
+        for (int id = 0; id < expected.size(); id++) {
+            Assert.assertEquals(expected.index(id), actual.index(id));
+            for (int action = 0; action < Action.COUNT; action++) {
+                Assert.assertEquals(expected.rowStart(id, action), actual.rowStart(id, action));
+                Assert.assertEquals(expected.rowEnd(id, action), actual.rowEnd(id, action));
+            }
+        }
+        for (int entry = 0; entry < expected.entries(); entry++) {
+            Assert.assertEquals(expected.successor(entry), actual.successor(entry));
+            Assert.assertEquals(expected.probability(entry), actual.probability(entry), 0.0);
+        }
+    }
+
+    @Test
+    public void testLoadsSavedTransitions() throws Exception {
+        Racetrack track = readTrackOrFail("l_track.txt");
+        TransitionCache cache = new TransitionCache(folder.getRoot().toPath());
+        TransitionTable compiled = new CompiledRacetrackMDP(track, Collision.STOP).getTransitionTable();
+
+        TransitionTable saved = cache.get(track, Collision.STOP);
+        Path path = cache.getPath(track, Collision.STOP);
+        Assert.assertTrue(Files.exists(path));
+        assertSameTransitions(compiled, saved);
+
+        TransitionTable loaded = TransitionCache.map(path, track, Collision.STOP);
+        assertSameTransitions(compiled, loaded);
+        for (int id = 0; id < loaded.size(); id++) {
+            Assert.assertEquals(id, loaded.id(loaded.state(id)));
+        }
+    }
+
+    @Test
+    public void testKeyedByTrackAndModel() throws Exception {
+        TransitionCache cache = new TransitionCache(folder.getRoot().toPath());
+        Racetrack lTrack = readTrackOrFail("l_track.txt");
+        Racetrack smallTrack = readTrackOrFail("small_l_track.txt");
+
+        Assert.assertNotEquals(cache.getPath(lTrack, Collision.STOP), cache.getPath(lTrack, Collision.RESTART));
+        Assert.assertNotEquals(cache.getPath(lTrack, Collision.STOP), cache.getPath(smallTrack, Collision.STOP));
+    }
+
+    @Test
+    public void testRecompilesCorruptFile() throws Exception {
+        Racetrack track = readTrackOrFail("small_l_track.txt");
+        TransitionCache cache = new TransitionCache(folder.getRoot().toPath());
+        TransitionTable compiled = cache.get(track, Collision.RESTART);
+        Path path = cache.getPath(track, Collision.RESTART);
+
+        byte[] bytes = Files.readAllBytes(path);
+        Files.write(path, Arrays.copyOf(bytes, bytes.length - 5));
+        try {
+            TransitionCache.map(path, track, Collision.RESTART);
+            Assert.fail("Expected a truncated transition file to be rejected");
+        } catch (IOException expected) {
+        }
+
+        assertSameTransitions(compiled, cache.get(track, Collision.RESTART));
+        Assert.assertEquals(bytes.length, Files.size(path));
+    }
+
+    @Test(expected = IOException.class)
+    public void testRejectsOtherSemantics() throws Exception {
+        Racetrack track = readTrackOrFail("small_l_track.txt");
+        TransitionCache cache = new TransitionCache(folder.getRoot().toPath());
+        cache.get(track, Collision.STOP);
+        Path path = cache.getPath(track, Collision.STOP);
+
+        //the semantics fingerprint follows the magic and version
+        ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(path));
+        bytes.putInt(2 * Integer.BYTES, TransitionCache.getSemantics() + 1);
+        Files.write(path, bytes.array());
+        TransitionCache.map(path, track, Collision.STOP);
+    }
+}
@@ -0,0 +1,196 @@
+package com.ai.sim;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.ai.Racetrack;
+import com.ai.model.Action;
+import com.ai.model.State;
+import com.ai.model.StateIndex;
+
+public class TransitionTableTest {
+    public Racetrack readTrackOrFail(String file) {
+        try {
+            return Racetrack.fromFile(file);
+        } catch (Exception e) {
+            Assert.fail(e.getMessage());
+        }
+        return null;
+    }
+
+    private Map<State, Double> distribution(List<PotentialState> potentialStates) {
+        Map<State, Double> distribution = new HashMap<>();
+        for (PotentialState potentialState : potentialStates) {
+            distribution.merge(potentialState.getState(), potentialState.getProbability(), Double::sum);
+        }
+        return distribution;
+    }
+
+    private void assertMatchesRacetrackMDP(String file, CollisionModel collisionModel) {
+        Racetrack track = readTrackOrFail(file);
+        MDP expected = new RacetrackMDP(track, collisionModel);
+        CompiledRacetrackMDP actual = new CompiledRacetrackMDP(track, collisionModel);
+        TransitionTable table = actual.getTransitionTable();
+
+        Assert.assertTrue("Expected compiled states", table.size() > 0);
+        for (int id = 0; id < table.size(); id++) {
+            State state = table.state(id);
+            Assert.assertEquals(id, table.id(state));
+
+            for (int ax = -1; ax <= 1; ax++) {
+                for (int ay = -1; ay <= 1; ay++) {
+                    Action action = new Action(ax, ay);
+                    Map<State, Double> expectedStates = distribution(expected.getNextStates(state, action));
+                    Map<State, Double> actualStates = distribution(actual.getNextStates(state, action));
+
+                    Assert.assertEquals(state + " " + action, expectedStates.keySet(), actualStates.keySet());
+                    for (State nextState : expectedStates.keySet()) {
+                        Assert.assertEquals(expectedStates.get(nextState), actualStates.get(nextState), 0.0001);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testMatchesRacetrackMDP() {
+        for (String file : new String[] {"all_safe.txt", "small_test_2.txt", "windy.txt", "small_l_track.txt", "l_track.txt"}) {
+            assertMatchesRacetrackMDP(file, Collision.STOP);
+            assertMatchesRacetrackMDP(file, Collision.RESTART);
+        }
+    }
+
+    @Test
+    public void testOnlyReachableStatesCompiled() {
+        Racetrack track = readTrackOrFail("small_test_2.txt");
+        TransitionTable table = new CompiledRacetrackMDP(track, Collision.STOP).getTransitionTable();
+
+        Assert.assertEquals(-1, table.id(2, 0, 0, 0));
+        Assert.assertEquals(-1, table.id(3, 1, 0, 0));
+        Assert.assertEquals(-1, table.id(-1, 0, 0, 0));
+        Assert.assertEquals(-1, table.id(0, 0, 5, -5));
+        Assert.assertNotEquals(-1, table.id(0, 0, 0, 0));
+        Assert.assertNotEquals(-1, table.id(1, 0, 0, 0));
+    }
+
+    @Test
+    public void testIdOfEveryState() {
+        Racetrack track = readTrackOrFail("r_track.txt");
+        TransitionTable table = new CompiledRacetrackMDP(track, Collision.RESTART).getTransitionTable();
+        StateIndex stateIndex = track.getStateIndex();
+
+        int compiled = 0;
+        for (int x = 0; x < track.getWidth(); x++) {
+            for (int y = 0; y < track.getHeight(); y++) {
+                for (int vx = -StateIndex.MAX_SPEED; vx <= StateIndex.MAX_SPEED; vx++) {
+                    for (int vy = -StateIndex.MAX_SPEED; vy <= StateIndex.MAX_SPEED; vy++) {
+                        int id = table.id(x, y, vx, vy);
+                        if (id != -1) {
+                            Assert.assertEquals(stateIndex.index(x, y, vx, vy), table.index(id));
+                            compiled++;
+                        }
+                    }
+                }
+            }
+        }
+        Assert.assertEquals(table.size(), compiled);
+    }
+
+    @Test
+    public void testReachableStatesClosed() {
+        for (String file : new String[] {"small_test_2.txt", "l_track.txt", "r_track.txt"}) {
+            for (CollisionModel collisionModel : new CollisionModel[] {Collision.STOP, Collision.RESTART}) {
+                Racetrack track = readTrackOrFail(file);
+                ReachableStates reachableStates = new ReachableStates(track, collisionModel);
+                ActionSimulator simulator = new DeterministicRacetrackSimulator(track, collisionModel);
+                Set<State> reachable = new HashSet<>();
+                for (int i = 0; i < reachableStates.size(); i++) {
+                    reachable.add(reachableStates.getStateIndex().state(reachableStates.get(i)));
+                }
+
+                Assert.assertTrue(reachable.size() < track.getWidth() * track.getHeight() * 121);
+                for (State state : reachable) {
+                    for (int ax = -1; ax <= 1; ax++) {
+                        for (int ay = -1; ay <= 1; ay++) {
+                            State nextState = simulator.getNextState(state, new Action(ax, ay));
+                            Assert.assertTrue(nextState == null || reachable.contains(nextState));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testSharedAcrossThreads() throws Exception {
+        Racetrack track = readTrackOrFail("l_track.txt");
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<CompiledRacetrackMDP>> compiles = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                compiles.add(executor.submit(() -> CompiledRacetrackMDP.forTrack(track, Collision.STOP)));
+            }
+            for (Future<CompiledRacetrackMDP> compile : compiles) {
+                Assert.assertSame(compiles.get(0).get(), compile.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        Assert.assertNotSame(CompiledRacetrackMDP.forTrack(track, Collision.STOP), CompiledRacetrackMDP.forTrack(track, Collision.RESTART));
+        Assert.assertNotSame(CompiledRacetrackMDP.forTrack(track, Collision.STOP),
+                             CompiledRacetrackMDP.forTrack(readTrackOrFail("l_track.txt"), Collision.STOP));
+    }
+
+    @Test
+    public void testSharedMDPKeptByRacetrack() {
+        Racetrack track = readTrackOrFail("small_l_track.txt");
+        CompiledRacetrackMDP mdp = CompiledRacetrackMDP.forTrack(track, Collision.stop(CollisionEngine.INTEGER));
+        Assert.assertSame(mdp, CompiledRacetrackMDP.forTrack(track, Collision.stop(CollisionEngine.INTEGER)));
+
+        //the racetrack keeps its own MDPs and there is no static registry, so they are dropped along with it
+        Map<?, ?> models = track.derived(CompiledRacetrackMDP.class, HashMap::new);
+        Assert.assertEquals(1, models.size());
+        for (Field field : CompiledRacetrackMDP.class.getDeclaredFields()) {
+            if (Modifier.isStatic(field.getModifiers())) {
+                Assert.assertFalse(field.getName(), Map.class.isAssignableFrom(field.getType()));
+            }
+        }
+    }
+
+    private void assertSamplesMatchPotentialStates(MDP mdp, TransitionTable table) {
+        MDP potentialStatesOnly = mdp::getNextStates;
+        double[] decisionNums = {0.0, 0.3, 0.7999, 0.8, 0.8001, 0.95, 0.99999};
+        for (int id = 0; id < table.size(); id++) {
+            State state = table.state(id);
+            for (int action = 0; action < Action.COUNT; action++) {
+                for (double decisionNum : decisionNums) {
+                    Assert.assertEquals(potentialStatesOnly.sample(state, Action.fromIndex(action), decisionNum),
+                                        mdp.sample(state, Action.fromIndex(action), decisionNum));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testSampleMatchesPotentialStates() {
+        Racetrack track = readTrackOrFail("l_track.txt");
+        for (CollisionModel collisionModel : new CollisionModel[] {Collision.STOP, Collision.RESTART}) {
+            CompiledRacetrackMDP compiled = new CompiledRacetrackMDP(track, collisionModel);
+            assertSamplesMatchPotentialStates(new RacetrackMDP(track, collisionModel), compiled.getTransitionTable());
+            assertSamplesMatchPotentialStates(compiled, compiled.getTransitionTable());
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.ai.alg;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ai.Racetrack;
+import com.ai.sim.Collision;
+
+public class ValueIterationTest {
+    public Racetrack readTrackOrFail(String file) {
+        try {
+            return Racetrack.fromFile(file);
+        } catch (Exception e) {
+            Assert.fail(e.getMessage());
+        }
+        return null;
+    }
+
+    @Test
+    public void testParallelMatchesSerial() {
+        Racetrack track = readTrackOrFail("l_track.txt");
+        ValueIteration serial = new ValueIteration(track, Collision.STOP, false);
+        ValueIteration parallel = new ValueIteration(track, Collision.STOP, true);
+
+        //start both learners from the same utilities
+        System.arraycopy(serial.getUtilities(), 0, parallel.getUtilities(), 0, serial.getUtilities().length);
+
+        while (!serial.finished()) {
+            serial.next();
+            parallel.next();
+
+            Assert.assertArrayEquals(serial.getUtilities(), parallel.getUtilities(), 0.0);
+            Assert.assertArrayEquals(serial.getBestActions(), parallel.getBestActions());
+            Assert.assertEquals(serial.finished(), parallel.finished());
+            Assert.assertEquals(serial.getIterationCount(), parallel.getIterationCount());
+        }
+    }
+
+    private void assertConvergesToValueIteration(UtilityLearner learner, ValueIteration valueIteration) {
+        while (!valueIteration.finished()) {
+            valueIteration.next();
+        }
+        while (!learner.finished()) {
+            learner.next();
+        }
+
+        double[] expected = valueIteration.getUtilities();
+        double[] actual = learner.getUtilities();
+        for (int id = 0; id < expected.length; id++) {
+            Assert.assertEquals(expected[id], actual[id], 0.001);
+        }
+    }
+
+    @Test
+    public void testGaussSeidelConverges() {
+        Racetrack track = readTrackOrFail("l_track.txt");
+        assertConvergesToValueIteration(new GaussSeidelValueIteration(track, Collision.STOP),
+                                        new ValueIteration(track, Collision.STOP));
+    }
+
+    @Test
+    public void testPrioritizedSweepingConverges() {
+        Racetrack track = readTrackOrFail("l_track.txt");
+        assertConvergesToValueIteration(new PrioritizedSweeping(track, Collision.RESTART),
+                                        new ValueIteration(track, Collision.RESTART));
+    }
+
+    @Test
+    public void testDistanceToFinishConvergesFaster() {
+        for (String file : new String[] {"l_track.txt", "o_track.txt", "r_track.txt", "small_l_track.txt"}) {
+            Racetrack track = readTrackOrFail(file);
+            ValueIteration random = new ValueIteration(track, Collision.STOP, UtilityInitializer.RANDOM, false);
+            ValueIteration seeded = new ValueIteration(track, Collision.STOP, UtilityInitializer.DISTANCE_TO_FINISH, false);
+            assertConvergesToValueIteration(seeded, random);
+
+            Assert.assertTrue(file, seeded.getIterationCount() < random.getIterationCount());
+        }
+    }
+}